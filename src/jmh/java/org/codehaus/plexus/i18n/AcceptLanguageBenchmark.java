@@ -0,0 +1,137 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link I18NTokenizer} with the <code>StringTokenizer</code>
+ * based implementation it replaced, and measures
+ * {@link DefaultI18N#getLocale(String)} with and without its cache, and
+ * {@link DefaultI18N#negotiateLocale(String, String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AcceptLanguageBenchmark {
+    @Param({"single", "browser", "ranked", "unsorted", "sameQuality", "long", "malformed"})
+    private String header;
+
+    private String value;
+
+    private DefaultI18N cached;
+
+    private DefaultI18N uncached;
+
+    @Setup
+    public void setUp() {
+        value = header(header);
+        cached = new DefaultI18N();
+        uncached = new DefaultI18N();
+        uncached.setLocaleCacheSize(0);
+    }
+
+    static String header(String name) {
+        switch (name) {
+            case "single":
+                return "en";
+            case "browser":
+                return "en-US,en;q=0.9";
+            case "ranked":
+                return "de-CH, de;q=0.9, fr;q=0.8, en;q=0.7, *;q=0.5";
+            case "unsorted":
+                return "zh-TW;q=0.1, es;q=0.8, pt-BR;q=0.3, en, ja;q=0.5, ko-KR;q=0.4";
+            case "sameQuality":
+                return repeat(40, "x%d;q=0.5");
+            case "long":
+                return repeat(200, "l%d-RR;q=0.%d");
+            case "malformed":
+                return " ,, en ;q= , fr;q=abc ,;q=0.2, de-;level=1;q=0.3 , -AT, ";
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    private static String repeat(int count, String element) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(String.format(Locale.ROOT, element, i, (i * 7) % 10));
+        }
+        return buf.toString();
+    }
+
+    @Benchmark
+    public void legacyTokenizer(Blackhole bh) {
+        LegacyI18NTokenizer tok = new LegacyI18NTokenizer(value);
+        while (tok.hasNext()) {
+            bh.consume(tok.next());
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole bh) {
+        I18NTokenizer tok = new I18NTokenizer(value);
+        while (tok.hasNext()) {
+            bh.consume(tok.next());
+        }
+    }
+
+    @Benchmark
+    public ParsedAcceptLanguage parse() {
+        return ParsedAcceptLanguage.parse(value);
+    }
+
+    @Benchmark
+    public Locale getLocaleCached() {
+        return cached.getLocale(value);
+    }
+
+    @Benchmark
+    public Locale getLocaleUncached() {
+        return uncached.getLocale(value);
+    }
+
+    @Benchmark
+    public Locale negotiateLocaleCached() {
+        return cached.negotiateLocale(LookupBenchmark.BUNDLE, value);
+    }
+
+    @Benchmark
+    public Locale negotiateLocaleUncached() {
+        return uncached.negotiateLocale(LookupBenchmark.BUNDLE, value);
+    }
+}
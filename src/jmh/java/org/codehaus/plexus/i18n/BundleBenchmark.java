@@ -0,0 +1,87 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DefaultI18N#getBundle(String, Locale)} with a warm
+ * cache, and with both its own and the <code>ResourceBundle</code>
+ * cache cleared before every call.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleBenchmark {
+    @State(Scope.Benchmark)
+    public static class Warm {
+        DefaultI18N i18n;
+
+        @Setup
+        public void setUp() {
+            i18n = new DefaultI18N(LookupBenchmark.BUNDLE_NAMES);
+            i18n.getBundle(LookupBenchmark.BUNDLE, Locale.FRENCH);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cold {
+        DefaultI18N i18n;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            ResourceBundle.clearCache();
+            i18n = new DefaultI18N(LookupBenchmark.BUNDLE_NAMES);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public ResourceBundle warm(Warm state) {
+        return state.i18n.getBundle(LookupBenchmark.BUNDLE, Locale.FRENCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 200)
+    @Warmup(iterations = 20)
+    public ResourceBundle cold(Cold state) {
+        return state.i18n.getBundle(LookupBenchmark.BUNDLE, Locale.FRENCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 200)
+    @Warmup(iterations = 20)
+    public ResourceBundle coldMissingLocale(Cold state) {
+        return state.i18n.getBundle(LookupBenchmark.BUNDLE, Locale.JAPANESE);
+    }
+}
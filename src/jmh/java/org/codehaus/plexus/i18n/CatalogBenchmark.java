@@ -0,0 +1,88 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares lookups in <code>.properties</code> bundles with lookups in
+ * a precompiled catalog read into the heap and in a memory-mapped one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogBenchmark {
+    @Param({"properties", "catalog", "mapped"})
+    private String source;
+
+    private DefaultI18N i18n;
+
+    private final Locale locale = Locale.FRENCH;
+
+    @Setup
+    public void setUp() throws Exception {
+        i18n = new DefaultI18N(new String[] {LookupBenchmark.BUNDLE});
+        if (source.equals("properties")) {
+            return;
+        }
+        Path classes = Paths.get(CatalogBenchmark.class
+                        .getResource("/org/codehaus/plexus/i18n/Benchmark.properties")
+                        .toURI())
+                .resolveSibling("../../../..")
+                .normalize();
+        Path file = Files.createTempFile("benchmark", ".catalog");
+        file.toFile().deleteOnExit();
+        BundleCompiler.compile(
+                file, Collections.singletonList(LookupBenchmark.BUNDLE), Collections.singletonList(classes));
+        if (source.equals("catalog")) {
+            i18n.setCatalogs(Collections.singletonList(Catalog.read(ByteBuffer.wrap(Files.readAllBytes(file)))));
+        } else {
+            i18n.setCatalogFiles(new String[] {file.toString()});
+        }
+    }
+
+    @Benchmark
+    public String hit() {
+        return i18n.getString(LookupBenchmark.BUNDLE, locale, "literal");
+    }
+
+    @Benchmark
+    public String miss() {
+        return i18n.getString(LookupBenchmark.BUNDLE, locale, "no.such.key");
+    }
+}
@@ -0,0 +1,92 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures throughput of a mix of lookups and formatting on one shared
+ * {@link DefaultI18N} with 1, 8 and 64 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+    private static final Locale[] LOCALES = {Locale.FRENCH, Locale.ENGLISH, Locale.GERMAN, Locale.ITALIAN};
+
+    private static final String[] HEADERS = {"fr-CH, fr;q=0.9, en;q=0.8", "en-US,en;q=0.9", "de", "it, en;q=0.5"};
+
+    private DefaultI18N i18n;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        i18n = new DefaultI18N(LookupBenchmark.BUNDLE_NAMES);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String threads1(Cursor cursor) {
+        return mixed(cursor);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String threads8(Cursor cursor) {
+        return mixed(cursor);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String threads64(Cursor cursor) {
+        return mixed(cursor);
+    }
+
+    private String mixed(Cursor cursor) {
+        int i = cursor.next++ & 3;
+        Locale locale = LOCALES[i];
+        switch (i) {
+            case 0:
+                return i18n.getString(LookupBenchmark.BUNDLE, locale, "literal");
+            case 1:
+                return i18n.format(LookupBenchmark.BUNDLE, locale, "two", "Alice", "Bob");
+            case 2:
+                return i18n.getString(LookupBenchmark.BUNDLE, i18n.getLocale(HEADERS[i]), "key4");
+            default:
+                return i18n.getString(LookupBenchmark.BUNDLE, locale, "no.such.key");
+        }
+    }
+}
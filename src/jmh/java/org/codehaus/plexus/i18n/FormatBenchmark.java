@@ -0,0 +1,94 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.IOException;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the <code>format</code> methods of {@link DefaultI18N} with
+ * different numbers of arguments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormatBenchmark {
+    private static final Object[] MANY_ARGS = {"a", "b", "c", "d", "e", "f", "g", "h"};
+
+    private static final Date DATE = new Date(1700000000000L);
+
+    private DefaultI18N i18n;
+
+    private final StringBuilder builder = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        i18n = new DefaultI18N(LookupBenchmark.BUNDLE_NAMES);
+    }
+
+    @Benchmark
+    public String noArgs() {
+        return i18n.format(LookupBenchmark.BUNDLE, Locale.FRENCH, "literal", (Object[]) null);
+    }
+
+    @Benchmark
+    public String oneArg() {
+        return i18n.format(LookupBenchmark.BUNDLE, Locale.FRENCH, "one", "world");
+    }
+
+    @Benchmark
+    public String twoArgs() {
+        return i18n.format(LookupBenchmark.BUNDLE, Locale.FRENCH, "two", "Alice", "Bob");
+    }
+
+    @Benchmark
+    public String manyArgs() {
+        return i18n.format(LookupBenchmark.BUNDLE, Locale.FRENCH, "many", MANY_ARGS);
+    }
+
+    @Benchmark
+    public String numberArg() {
+        return i18n.format(LookupBenchmark.BUNDLE, Locale.FRENCH, "one", 1234567);
+    }
+
+    @Benchmark
+    public String typedArgs() {
+        return i18n.format(LookupBenchmark.BUNDLE, Locale.FRENCH, "typed", 1234567, DATE);
+    }
+
+    @Benchmark
+    public StringBuilder twoArgsToBuilder() throws IOException {
+        builder.setLength(0);
+        i18n.formatTo(builder, LookupBenchmark.BUNDLE, Locale.FRENCH, "two", "Alice", "Bob");
+        return builder;
+    }
+}
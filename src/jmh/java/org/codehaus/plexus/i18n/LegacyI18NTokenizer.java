@@ -0,0 +1,146 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+
+/**
+ * The <code>I18NTokenizer</code> implementation as of plexus-i18n 1.1.0,
+ * kept as the baseline for {@link AcceptLanguageBenchmark}.
+ */
+class LegacyI18NTokenizer implements Iterator<Locale> {
+    /**
+     * Separates elements of the <code>Accept-Language</code> HTTP
+     * header.
+     */
+    private static final String LOCALE_SEPARATOR = ",";
+
+    /**
+     * Separates locale from quality within elements.
+     */
+    private static final char QUALITY_SEPARATOR = ';';
+
+    /**
+     * The default quality value for an <code>AcceptLanguage</code>
+     * object.
+     */
+    private static final float DEFAULT_QUALITY = 1.0f;
+
+    /**
+     * The parsed locales.
+     */
+    private final List<AcceptLanguage> locales = new ArrayList<>(3);
+
+    /**
+     * Parses the <code>Accept-Language</code> header.
+     *
+     * @param header The <code>Accept-Language</code> header
+     * (i.e. <code>en, es;q=0.8, zh-TW;q=0.1</code>).
+     */
+    LegacyI18NTokenizer(String header) {
+        StringTokenizer tok = new StringTokenizer(header, LOCALE_SEPARATOR);
+        while (tok.hasMoreTokens()) {
+            AcceptLanguage acceptLang = new AcceptLanguage();
+            String element = tok.nextToken().trim();
+            int index;
+
+            // Record and cut off any quality value that comes after a
+            // semi-colon.
+            if ((index = element.indexOf(QUALITY_SEPARATOR)) != -1) {
+                String q = element.substring(index);
+                element = element.substring(0, index);
+                if ((index = q.indexOf('=')) != -1) {
+                    try {
+                        acceptLang.quality = Float.valueOf(q.substring(index + 1));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+
+            element = element.trim();
+
+            // Create a Locale from the language.  A dash may separate the
+            // language from the country.
+            if ((index = element.indexOf('-')) == -1) {
+                // No dash means no country.
+                acceptLang.locale = new Locale(element, "");
+            } else {
+                acceptLang.locale = new Locale(element.substring(0, index), element.substring(index + 1));
+            }
+
+            locales.add(acceptLang);
+        }
+
+        // Sort by quality in descending order.
+        locales.sort(Collections.reverseOrder());
+    }
+
+    /**
+     * @return Whether there are more locales.
+     */
+    public boolean hasNext() {
+        return !locales.isEmpty();
+    }
+
+    /**
+     * Creates a <code>Locale</code> from the next element of the
+     * <code>Accept-Language</code> header.
+     *
+     * @return The next highest-rated <code>Locale</code>.
+     * @throws NoSuchElementException No more locales.
+     */
+    public Locale next() {
+        if (locales.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return locales.remove(0).locale;
+    }
+
+    /**
+     * Not implemented.
+     */
+    public final void remove() {
+        throw new UnsupportedOperationException(getClass().getName() + " does not support remove()");
+    }
+
+    /**
+     * Struct representing an element of the HTTP
+     * <code>Accept-Language</code> header.
+     */
+    private static class AcceptLanguage implements Comparable<AcceptLanguage> {
+        /**
+         * The language and country.
+         */
+        Locale locale;
+
+        /**
+         * The quality of our locale (as values approach
+         * <code>1.0</code>, they indicate increased user preference).
+         */
+        Float quality = DEFAULT_QUALITY;
+
+        public final int compareTo(AcceptLanguage acceptLang) {
+            return quality.compareTo(acceptLang.quality);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link DefaultI18N#getString(String, Locale, String)} for keys
+ * found in the requested bundle, found further down the list of default
+ * bundles, and not found at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+    static final String BUNDLE = "org.codehaus.plexus.i18n.Benchmark";
+
+    static final String[] BUNDLE_NAMES = {
+        BUNDLE, "org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"
+    };
+
+    @Param({"fr", "en"})
+    private String language;
+
+    private DefaultI18N i18n;
+
+    private Locale locale;
+
+    @Setup
+    public void setUp() {
+        i18n = new DefaultI18N(BUNDLE_NAMES);
+        locale = new Locale(language);
+    }
+
+    @Benchmark
+    public String hit() {
+        return i18n.getString(BUNDLE, locale, "literal");
+    }
+
+    @Benchmark
+    public String fallback() {
+        return i18n.getString(BUNDLE, locale, "key4");
+    }
+
+    @Benchmark
+    public String miss() {
+        return i18n.getString(BUNDLE, locale, "no.such.key");
+    }
+}
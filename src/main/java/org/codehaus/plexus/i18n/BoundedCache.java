@@ -0,0 +1,171 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A small thread-safe cache holding at most <code>maximumSize</code>
+ * entries.  When the cache is full, an entry is evicted with the CLOCK
+ * algorithm: every hit marks its entry as referenced, and a hand
+ * sweeping over the entries clears the marks, evicting the first entry
+ * it finds unmarked.  Entries that keep being hit thus stay cached,
+ * while lookups only set a flag.  A maximum size of <code>0</code>
+ * disables caching.  Hits and misses are counted for monitoring.
+ */
+final class BoundedCache<K, V> {
+    /**
+     * A cached value and its reference mark.
+     */
+    private static final class Node<V> {
+        volatile V value;
+
+        volatile boolean referenced;
+
+        Node(V value) {
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentMap<K, Node<V>> entries;
+
+    /**
+     * The keys in the order the hand sweeps over them; guarded by
+     * <code>lock</code>.
+     */
+    private final Object[] slots;
+
+    /**
+     * The number of used slots; guarded by <code>lock</code>.
+     */
+    private int used;
+
+    /**
+     * The slot the hand points at; guarded by <code>lock</code>.
+     */
+    private int hand;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    BoundedCache(int maximumSize) {
+        this.maximumSize = Math.max(0, maximumSize);
+        this.entries = new ConcurrentHashMap<>(Math.min(this.maximumSize, 64));
+        this.slots = new Object[this.maximumSize];
+    }
+
+    /**
+     * @return The cached value, or <code>null</code> if none.
+     */
+    V get(K key) {
+        Node<V> node = maximumSize > 0 ? entries.get(key) : null;
+        if (node != null) {
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+            hits.increment();
+            return node.value;
+        }
+        misses.increment();
+        return null;
+    }
+
+    void put(K key, V value) {
+        if (maximumSize <= 0) {
+            return;
+        }
+        Node<V> node = entries.get(key);
+        if (node != null) {
+            node.value = value;
+            return;
+        }
+        lock.lock();
+        try {
+            node = entries.get(key);
+            if (node != null) {
+                node.value = value;
+                return;
+            }
+            int slot;
+            if (used < maximumSize) {
+                slot = used++;
+            } else {
+                slot = findVictim();
+                entries.remove(slots[slot]);
+            }
+            slots[slot] = key;
+            entries.put(key, new Node<>(value));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Advances the hand to the first entry not referenced since the
+     * hand last passed it, clearing the marks on the way.
+     *
+     * @return The slot of the entry to evict.
+     */
+    private int findVictim() {
+        while (true) {
+            int slot = hand;
+            hand = (hand + 1) % maximumSize;
+            Node<V> node = entries.get(slots[slot]);
+            if (node == null || !node.referenced) {
+                return slot;
+            }
+            node.referenced = false;
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            entries.clear();
+            Arrays.fill(slots, null);
+            used = 0;
+            hand = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    int getMaximumSize() {
+        return maximumSize;
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+}
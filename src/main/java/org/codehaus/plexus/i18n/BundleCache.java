@@ -0,0 +1,1142 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Caches bundles by name and locale.  Each bundle is loaded once: the
+ * first thread asking for it loads it, concurrent requests for the same
+ * bundle and locale wait for that load, and unrelated bundles load in
+ * parallel.  Waiting threads park on the future of the load rather
+ * than on a monitor, so virtual threads do not pin their carrier
+ * threads.  Bundles that were not found are only remembered if a
+ * time-to-live for missing bundles is set; until it expires, requests
+ * for them rethrow the exception of the failed load.
+ * <p>
+ * Loaded bundles are cached by the locale of the bundle that was found
+ * rather than by the requested locale, which is only remembered, in a
+ * bounded cache per bundle name, to lead to the bundle found for it.
+ * Requests for any number of locales the bundle is not available in,
+ * such as those of made up <code>Accept-Language</code> headers, thus
+ * share the cached bundle of the locale they fall back to.
+ * <p>
+ * The cache is unbounded unless a maximum number of bundles, a maximum
+ * estimated size or an idle time is set.  Bundles then expire once
+ * they were not requested for the idle time, and when the cache is
+ * full the least recently used bundle makes room for a new one, but
+ * only if the new one was requested more often recently, as estimated
+ * by a {@link FrequencySketch}.  Otherwise the new bundle is returned
+ * without being cached.  This is the admission policy of TinyLFU,
+ * which keeps popular bundles cached while many rarely used ones come
+ * and go.  Remembered missing bundles count as bundles of their own
+ * toward these bounds.  Bounded or not, at most
+ * {@link #MAX_MISSING_BUNDLES} missing bundles are remembered, the
+ * oldest being forgotten first, and expired ones are swept as requests
+ * come in.
+ */
+final class BundleCache {
+    /**
+     * Loads a bundle that is not cached yet.
+     */
+    interface Loader {
+        /**
+         * @throws MissingResourceException Bundle not found.
+         */
+        ResourceBundle load(String bundleName, Locale locale);
+    }
+
+    /**
+     * Told of the bundles dropped to keep the cache within its bounds.
+     */
+    interface RemovalListener {
+        /**
+         * @param expired <code>true</code> if the bundle was not requested
+         *                for the idle time, <code>false</code> if it was
+         *                evicted to make room.
+         */
+        void removed(String bundleName, Locale locale, boolean expired);
+    }
+
+    /**
+     * The estimated heap taken by a cached bundle besides its keys and
+     * values, in bytes.
+     */
+    private static final long ENTRY_BYTES = 128;
+
+    /**
+     * The estimated heap taken by a string besides its characters, in
+     * bytes.
+     */
+    private static final long STRING_BYTES = 40;
+
+    /**
+     * How often, at most, a request for a cached bundle is recorded, in
+     * nanoseconds.  This bounds the writes caused by popular bundles,
+     * which the frequency sketch then counts once per period.
+     */
+    private static final long ACCESS_GRANULARITY = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The number of bundles the frequency sketch is sized for when the
+     * number of bundles is not bounded.
+     */
+    private static final int DEFAULT_SKETCH_SIZE = 1024;
+
+    /**
+     * The number of requested locales whose bundle locale is remembered
+     * for each bundle name.
+     */
+    private static final int RESOLVED_LOCALES_SIZE = 256;
+
+    /**
+     * The highest number of remembered missing bundles, which are kept
+     * by requested locale, so that made up locales do not fill the
+     * cache even while it is unbounded.
+     */
+    static final int MAX_MISSING_BUNDLES = 1024;
+
+    private static final RemovalListener NO_LISTENER = (bundleName, locale, expired) -> {};
+
+    /**
+     * A cached bundle, or the pending or failed load of one.
+     */
+    private static final class Entry {
+        private static final long NEVER = Long.MAX_VALUE;
+
+        private final CompletableFuture<ResourceBundle> future = new CompletableFuture<>();
+
+        /**
+         * Why the load failed, kept so that remembered failures can be
+         * rethrown without going through the future.
+         */
+        private volatile MissingResourceException failure;
+
+        /**
+         * When a failed load expires, in terms of
+         * <code>System.nanoTime()</code>, or {@link #NEVER}.
+         */
+        private volatile long expiresAt;
+
+        /**
+         * When the bundle was last requested, in terms of
+         * <code>System.nanoTime()</code>, if the cache is bounded.
+         */
+        private volatile long lastAccess;
+
+        /**
+         * The estimated size of the bundle in bytes, or <code>-1</code>
+         * while the entry is not counted in the size of the cache.
+         * Guarded by {@link BundleCache#evictionLock}.
+         */
+        private long weight = -1;
+
+        /**
+         * Whether the entry is a failed load counted in
+         * {@link BundleCache#missingBundles}.  Guarded by
+         * {@link BundleCache#evictionLock}.
+         */
+        private boolean missing;
+
+        boolean isExpired() {
+            return failure != null && expiresAt != NEVER && System.nanoTime() - expiresAt >= 0;
+        }
+
+        /**
+         * @return The bundle, or <code>null</code> if it is not loaded
+         *         (yet).
+         */
+        ResourceBundle getLoaded() {
+            return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+        }
+    }
+
+    /**
+     * A cached bundle chosen for removal.
+     */
+    private static final class Removal {
+        private final String bundleName;
+
+        private final ConcurrentMap<Locale, Entry> bundlesByLocale;
+
+        private final Locale locale;
+
+        private final Entry entry;
+
+        private final boolean expired;
+
+        Removal(
+                String bundleName,
+                ConcurrentMap<Locale, Entry> bundlesByLocale,
+                Locale locale,
+                Entry entry,
+                boolean expired) {
+            this.bundleName = bundleName;
+            this.bundlesByLocale = bundlesByLocale;
+            this.locale = locale;
+            this.entry = entry;
+            this.expired = expired;
+        }
+    }
+
+    private final ConcurrentMap<String, ConcurrentMap<Locale, Entry>> bundles = new ConcurrentHashMap<>();
+
+    /**
+     * The locale of the bundle found for a requested locale other than
+     * that of the bundle, by bundle name.
+     */
+    private final ConcurrentMap<String, BoundedCache<Locale, Locale>> resolvedLocales = new ConcurrentHashMap<>();
+
+    /**
+     * How long, in milliseconds, a bundle that was not found is
+     * remembered: <code>0</code> for not at all, a negative value for
+     * ever.
+     */
+    private volatile long missingBundleTtl;
+
+    /**
+     * The highest number of cached bundles, or <code>0</code> for no
+     * limit.
+     */
+    private volatile int maxEntries;
+
+    /**
+     * The highest estimated size of the cached bundles, in bytes, or
+     * <code>0</code> for no limit.
+     */
+    private volatile long maxBytes;
+
+    /**
+     * How long, in nanoseconds, a bundle stays cached without being
+     * requested, or <code>0</code> for ever.
+     */
+    private volatile long expireAfterAccess;
+
+    /**
+     * Estimates how often bundles were requested, or <code>null</code>
+     * while the cache is unbounded.
+     */
+    private volatile FrequencySketch sketch;
+
+    private volatile RemovalListener removalListener = NO_LISTENER;
+
+    /**
+     * Whether a loaded bundle may be cached.  Bundles it does not
+     * accept are handed to the requests waiting for them, and loaded
+     * again on the next request.
+     */
+    private volatile Predicate<ResourceBundle> cacheable = rb -> true;
+
+    /**
+     * Guards the size of the cache and the removal of the entries
+     * counted in it.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private int size;
+
+    private long bytes;
+
+    /**
+     * The number of remembered missing bundles.  Written with the
+     * eviction lock held.
+     */
+    private volatile int missingBundles;
+
+    /**
+     * When the cache is next swept for idle bundles, in terms of
+     * <code>System.nanoTime()</code>.
+     */
+    private volatile long nextSweep;
+
+    /**
+     * When the cache is next swept for expired missing bundles, in
+     * terms of <code>System.nanoTime()</code>.
+     */
+    private volatile long nextMissingSweep;
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder expirations = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    void setMissingBundleTtl(long missingBundleTtl) {
+        this.missingBundleTtl = missingBundleTtl;
+    }
+
+    long getMissingBundleTtl() {
+        return missingBundleTtl;
+    }
+
+    int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * @param maxEntries The highest number of cached bundles, or
+     *                   <code>0</code> for no limit.
+     */
+    void setMaxEntries(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+        updatePolicy();
+    }
+
+    long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @param maxBytes The highest estimated size of the cached bundles,
+     *                 in bytes, or <code>0</code> for no limit.
+     */
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        updatePolicy();
+    }
+
+    long getExpireAfterAccess() {
+        return TimeUnit.NANOSECONDS.toMillis(expireAfterAccess);
+    }
+
+    /**
+     * @param expireAfterAccess How long, in milliseconds, a bundle stays
+     *                          cached without being requested, or
+     *                          <code>0</code> for ever.
+     */
+    void setExpireAfterAccess(long expireAfterAccess) {
+        this.expireAfterAccess = TimeUnit.MILLISECONDS.toNanos(Math.max(0, expireAfterAccess));
+        updatePolicy();
+    }
+
+    void setRemovalListener(RemovalListener removalListener) {
+        this.removalListener = removalListener != null ? removalListener : NO_LISTENER;
+    }
+
+    void setCacheable(Predicate<ResourceBundle> cacheable) {
+        this.cacheable = cacheable;
+    }
+
+    /**
+     * @return Whether bundles may be dropped from the cache to bound it.
+     */
+    boolean isBounded() {
+        return sketch != null;
+    }
+
+    /**
+     * @return The number of bundles counted in the bounds of the cache,
+     *         or <code>0</code> if it is unbounded.
+     */
+    int size() {
+        evictionLock.lock();
+        try {
+            return size;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return The estimated size in bytes of the bundles counted in the
+     *         bounds of the cache, or <code>0</code> if it is unbounded.
+     */
+    long getEstimatedBytes() {
+        evictionLock.lock();
+        try {
+            return bytes;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of remembered missing bundles.
+     */
+    int getMissingBundleCount() {
+        return missingBundles;
+    }
+
+    /**
+     * @return How many bundles were evicted to make room for others.
+     */
+    long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return How many bundles expired after not being requested.
+     */
+    long getExpirationCount() {
+        return expirations.sum();
+    }
+
+    /**
+     * @return How many loaded bundles were not cached, as they were
+     *         requested less often than the bundle they would evict.
+     */
+    long getRejectionCount() {
+        return rejections.sum();
+    }
+
+    /**
+     * Returns the cached bundle, loading it first if necessary.
+     *
+     * @throws MissingResourceException Bundle not found.
+     */
+    ResourceBundle get(String bundleName, Locale locale, Loader loader) {
+        Entry entry;
+        while (true) {
+            ConcurrentMap<Locale, Entry> bundlesByLocale = getBundlesByLocale(bundleName);
+            entry = lookup(bundleName, bundlesByLocale, locale);
+            if (entry != null) {
+                break;
+            }
+            recordMiss(bundleName, locale);
+            Entry loading = new Entry();
+            entry = bundlesByLocale.putIfAbsent(locale, loading);
+            if (entry != null) {
+                break;
+            }
+            if (isAttached(bundleName, bundlesByLocale, locale, loading)) {
+                return load(bundleName, locale, loader, bundlesByLocale, loading);
+            }
+        }
+        MissingResourceException failure = entry.failure;
+        if (failure != null) {
+            throw failure;
+        }
+        return join(entry.future);
+    }
+
+    /**
+     * Returns the cached bundle, or else loads it using
+     * <code>executor</code>.  The calling thread never waits.
+     *
+     * @return The bundle, once loaded, or the
+     *         <code>MissingResourceException</code> if not found.
+     */
+    CompletableFuture<ResourceBundle> getAsync(String bundleName, Locale locale, Loader loader, Executor executor) {
+        Entry entry;
+        while (true) {
+            ConcurrentMap<Locale, Entry> bundlesByLocale = getBundlesByLocale(bundleName);
+            entry = lookup(bundleName, bundlesByLocale, locale);
+            if (entry != null) {
+                break;
+            }
+            recordMiss(bundleName, locale);
+            Entry loading = new Entry();
+            entry = bundlesByLocale.putIfAbsent(locale, loading);
+            if (entry != null) {
+                break;
+            }
+            if (isAttached(bundleName, bundlesByLocale, locale, loading)) {
+                entry = loading;
+                try {
+                    executor.execute(() -> {
+                        try {
+                            load(bundleName, locale, loader, bundlesByLocale, loading);
+                        } catch (RuntimeException | Error ignored) {
+                            // The future of the entry has it.
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    removeUncounted(bundleName, bundlesByLocale, locale, loading);
+                    loading.future.completeExceptionally(e);
+                }
+                break;
+            }
+        }
+        // A dependent future, so that callers cannot complete the entry.
+        return entry.future.thenApply(Function.identity());
+    }
+
+    /**
+     * @return The cached bundle, or <code>null</code> if it is not loaded
+     *         (yet).
+     */
+    ResourceBundle getIfPresent(String bundleName, Locale locale) {
+        ConcurrentMap<Locale, Entry> bundlesByLocale = bundles.get(bundleName);
+        Entry entry = bundlesByLocale == null ? null : lookup(bundleName, bundlesByLocale, locale);
+        return entry == null ? null : entry.getLoaded();
+    }
+
+    /**
+     * Records a use of a cached bundle that did not go through the
+     * cache, such as a lookup in an index built from the bundle, so
+     * that the bundle neither expires nor is evicted as unused.
+     */
+    void touch(String bundleName, Locale locale) {
+        if (sketch != null) {
+            ConcurrentMap<Locale, Entry> bundlesByLocale = bundles.get(bundleName);
+            if (bundlesByLocale != null) {
+                lookup(bundleName, bundlesByLocale, locale);
+            }
+        }
+    }
+
+    /**
+     * @return Whether a bundle of that name is cached for any locale,
+     *         or being loaded.
+     */
+    boolean contains(String bundleName) {
+        return bundles.containsKey(bundleName);
+    }
+
+    /**
+     * @return Whether bundle locales found for requested locales are
+     *         remembered for the named bundle.
+     */
+    boolean hasResolvedLocales(String bundleName) {
+        return resolvedLocales.containsKey(bundleName);
+    }
+
+    /**
+     * Drops the cached entries of the named bundle for which
+     * <code>affected</code> accepts either the requested locale or the
+     * locale of the bundle that was found.  The bundle locales found
+     * for requested locales are forgotten, as the files that decided
+     * them may have changed.
+     *
+     * @return The locales of the dropped entries.
+     */
+    Set<Locale> invalidate(String bundleName, Predicate<Locale> affected) {
+        resolvedLocales.remove(bundleName);
+        Set<Locale> invalidated = new HashSet<>();
+        ConcurrentMap<Locale, Entry> bundlesByLocale = bundles.get(bundleName);
+        if (bundlesByLocale != null) {
+            for (Map.Entry<Locale, Entry> e : bundlesByLocale.entrySet()) {
+                Locale locale = e.getKey();
+                ResourceBundle rb = e.getValue().getLoaded();
+                if ((affected.test(locale) || (rb != null && affected.test(rb.getLocale())))
+                        && remove(bundleName, bundlesByLocale, locale, e.getValue())) {
+                    invalidated.add(locale);
+                }
+            }
+        }
+        return invalidated;
+    }
+
+    void clear() {
+        evictionLock.lock();
+        try {
+            for (ConcurrentMap<Locale, Entry> bundlesByLocale : bundles.values()) {
+                for (Entry entry : bundlesByLocale.values()) {
+                    entry.weight = -1;
+                    entry.missing = false;
+                }
+            }
+            bundles.clear();
+            resolvedLocales.clear();
+            size = 0;
+            bytes = 0;
+            missingBundles = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Estimates the heap taken by a bundle.  Keys inherited from parent
+     * bundles are counted too, so the estimate errs on the high side.
+     * Bundles of precompiled catalogs count as their entry only, as
+     * their messages stay in the catalog.
+     *
+     * @return The estimated size in bytes.
+     */
+    static long estimateBytes(ResourceBundle rb) {
+        if (rb instanceof CatalogBundle) {
+            return ENTRY_BYTES;
+        }
+        if (rb instanceof LazyPropertiesBundle) {
+            return ENTRY_BYTES + ((LazyPropertiesBundle) rb).estimateBytes();
+        }
+        long bytes = ENTRY_BYTES;
+        for (String key : rb.keySet()) {
+            Object value = rb.getObject(key);
+            bytes += 2 * STRING_BYTES + 2L * key.length();
+            if (value instanceof String) {
+                bytes += 2L * ((String) value).length();
+            }
+        }
+        return bytes;
+    }
+
+    private ConcurrentMap<Locale, Entry> getBundlesByLocale(String bundleName) {
+        ConcurrentMap<Locale, Entry> bundlesByLocale = bundles.get(bundleName);
+        if (bundlesByLocale == null) {
+            bundlesByLocale = bundles.computeIfAbsent(bundleName, name -> new ConcurrentHashMap<>(4));
+        }
+        return bundlesByLocale;
+    }
+
+    /**
+     * Checks that an entry just added to the map of a bundle name did
+     * not go into a map dropped as empty at the same time, where no
+     * lookup would find it.  The check goes through the map of all
+     * bundles, so that it waits for a drop in progress.  If the map was
+     * dropped, the entry is taken out again.
+     *
+     * @return Whether the map is still that of the bundle name.
+     */
+    private boolean isAttached(
+            String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale, Locale locale, Entry entry) {
+        if (bundles.computeIfPresent(bundleName, (name, current) -> current) == bundlesByLocale) {
+            return true;
+        }
+        bundlesByLocale.remove(locale, entry);
+        return false;
+    }
+
+    /**
+     * Returns the entry of the requested locale, or else that of the
+     * locale of the bundle found for it before.
+     *
+     * @return The entry, or <code>null</code> if there is none or it
+     *         expired.
+     */
+    private Entry lookup(String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale, Locale locale) {
+        Entry entry = getEntry(bundleName, bundlesByLocale, locale);
+        if (entry == null) {
+            BoundedCache<Locale, Locale> resolved = resolvedLocales.get(bundleName);
+            Locale bundleLocale = resolved != null ? resolved.get(locale) : null;
+            if (bundleLocale != null) {
+                entry = getEntry(bundleName, bundlesByLocale, bundleLocale);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the entry of the locale, recording the request if the
+     * cache is bounded.
+     *
+     * @return The entry, or <code>null</code> if there is none or it
+     *         expired.
+     */
+    private Entry getEntry(String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale, Locale locale) {
+        Entry entry = bundlesByLocale.get(locale);
+        if (missingBundles > 0) {
+            sweepMissingIfDue();
+        }
+        if (entry != null && entry.isExpired()) {
+            remove(bundleName, bundlesByLocale, locale, entry);
+            return null;
+        }
+        FrequencySketch sketch = this.sketch;
+        if (sketch != null) {
+            long now = System.nanoTime();
+            if (entry != null) {
+                if (isIdle(entry, now)) {
+                    if (remove(bundleName, bundlesByLocale, locale, entry)) {
+                        expirations.increment();
+                        removalListener.removed(bundleName, locale, true);
+                    }
+                    entry = null;
+                } else if (now - entry.lastAccess >= ACCESS_GRANULARITY) {
+                    entry.lastAccess = now;
+                    sketch.increment(hash(bundleName, locale));
+                }
+            }
+            sweepIfDue(now);
+        }
+        return entry;
+    }
+
+    /**
+     * Records the request for a bundle that is not cached, so that it
+     * may be admitted once it is requested often enough.
+     */
+    private void recordMiss(String bundleName, Locale locale) {
+        FrequencySketch sketch = this.sketch;
+        if (sketch != null) {
+            sketch.increment(hash(bundleName, locale));
+        }
+    }
+
+    private static int hash(String bundleName, Locale locale) {
+        return 31 * bundleName.hashCode() + locale.hashCode();
+    }
+
+    /**
+     * @return Whether a loaded bundle was not requested for the idle
+     *         time.
+     */
+    private boolean isIdle(Entry entry, long now) {
+        long expireAfterAccess = this.expireAfterAccess;
+        return expireAfterAccess > 0 && entry.getLoaded() != null && now - entry.lastAccess >= expireAfterAccess;
+    }
+
+    private ResourceBundle load(
+            String bundleName,
+            Locale locale,
+            Loader loader,
+            ConcurrentMap<Locale, Entry> bundlesByLocale,
+            Entry loading) {
+        try {
+            ResourceBundle rb = loader.load(bundleName, locale);
+            loading.lastAccess = System.nanoTime();
+            loading.future.complete(rb);
+            if (!cacheable.test(rb)) {
+                removeUncounted(bundleName, bundlesByLocale, locale, loading);
+                return rb;
+            }
+            Locale bundleLocale = rb.getLocale();
+            if (bundleLocale != null && !bundleLocale.equals(locale)) {
+                if (!move(bundleName, bundlesByLocale, locale, bundleLocale, loading)) {
+                    return rb;
+                }
+                locale = bundleLocale;
+                recordMiss(bundleName, locale);
+            }
+            if (sketch != null) {
+                admit(bundleName, locale, bundlesByLocale, loading, estimateBytes(rb));
+            }
+            return rb;
+        } catch (MissingResourceException e) {
+            long ttl = missingBundleTtl;
+            if (ttl == 0) {
+                removeUncounted(bundleName, bundlesByLocale, locale, loading);
+            } else {
+                loading.expiresAt =
+                        ttl < 0 ? Entry.NEVER : System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl);
+                loading.lastAccess = System.nanoTime();
+                loading.failure = e;
+            }
+            loading.future.completeExceptionally(e);
+            if (ttl != 0) {
+                countMissing(bundleName, locale, bundlesByLocale, loading);
+                if (sketch != null) {
+                    admit(bundleName, locale, bundlesByLocale, loading, ENTRY_BYTES);
+                }
+            }
+            throw e;
+        } catch (RuntimeException | Error e) {
+            removeUncounted(bundleName, bundlesByLocale, locale, loading);
+            loading.future.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Caches a loaded bundle by its own locale instead of the requested
+     * one, and remembers which bundle locale the requested locale leads
+     * to.  If the bundle of that locale is already cached or being
+     * loaded, that entry is kept instead.
+     *
+     * @return Whether the loaded entry was cached.
+     */
+    private boolean move(
+            String bundleName,
+            ConcurrentMap<Locale, Entry> bundlesByLocale,
+            Locale locale,
+            Locale bundleLocale,
+            Entry loaded) {
+        Entry existing = bundlesByLocale.putIfAbsent(bundleLocale, loaded);
+        boolean moved = existing == null
+                || (existing.failure != null && replace(bundlesByLocale, bundleLocale, existing, loaded));
+        BoundedCache<Locale, Locale> resolved = resolvedLocales.get(bundleName);
+        if (resolved == null) {
+            resolved = resolvedLocales.computeIfAbsent(bundleName, name -> new BoundedCache<>(RESOLVED_LOCALES_SIZE));
+        }
+        resolved.put(locale, bundleLocale);
+        if (bundles.get(bundleName) != bundlesByLocale) {
+            // The map was dropped meanwhile, and the bundle locales with it.
+            resolvedLocales.remove(bundleName, resolved);
+        }
+        removeUncounted(bundleName, bundlesByLocale, locale, loaded);
+        return moved;
+    }
+
+    /**
+     * Replaces a remembered failure to load a bundle with the bundle,
+     * which was found for another requested locale since.
+     *
+     * @return Whether the failure was still cached.
+     */
+    private boolean replace(
+            ConcurrentMap<Locale, Entry> bundlesByLocale, Locale bundleLocale, Entry failed, Entry loaded) {
+        evictionLock.lock();
+        try {
+            if (!bundlesByLocale.replace(bundleLocale, failed, loaded)) {
+                return false;
+            }
+            uncount(failed);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Counts a remembered failure to load a bundle among the missing
+     * bundles.  If there are too many, the expired ones are dropped,
+     * and then the one requested longest ago.
+     */
+    private void countMissing(
+            String bundleName, Locale locale, ConcurrentMap<Locale, Entry> bundlesByLocale, Entry failed) {
+        evictionLock.lock();
+        try {
+            if (failed.missing || bundles.get(bundleName) != bundlesByLocale || bundlesByLocale.get(locale) != failed) {
+                // Counted or invalidated meanwhile.
+                return;
+            }
+            failed.missing = true;
+            missingBundles++;
+            if (missingBundles > MAX_MISSING_BUNDLES) {
+                sweepMissing();
+            }
+            if (missingBundles > MAX_MISSING_BUNDLES) {
+                Removal oldest = null;
+                for (Map.Entry<String, ConcurrentMap<Locale, Entry>> bundle : bundles.entrySet()) {
+                    for (Map.Entry<Locale, Entry> e : bundle.getValue().entrySet()) {
+                        Entry entry = e.getValue();
+                        if (entry.missing
+                                && entry != failed
+                                && (oldest == null || entry.lastAccess - oldest.entry.lastAccess < 0)) {
+                            oldest = new Removal(bundle.getKey(), bundle.getValue(), e.getKey(), entry, false);
+                        }
+                    }
+                }
+                if (oldest != null) {
+                    removeLocked(oldest.bundleName, oldest.bundlesByLocale, oldest.locale, oldest.entry);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Sweeps the cache for expired missing bundles, at most twice per
+     * time-to-live, unless another thread is at it.
+     */
+    private void sweepMissingIfDue() {
+        long ttl = missingBundleTtl;
+        long now = System.nanoTime();
+        if (ttl <= 0 || now - nextMissingSweep < 0 || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            nextMissingSweep = now + Math.max(TimeUnit.MILLISECONDS.toNanos(ttl) / 2, ACCESS_GRANULARITY);
+            sweepMissing();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the expired missing bundles.  Called with the eviction lock
+     * held.
+     */
+    private void sweepMissing() {
+        for (Map.Entry<String, ConcurrentMap<Locale, Entry>> bundle : bundles.entrySet()) {
+            for (Map.Entry<Locale, Entry> e : bundle.getValue().entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.missing && entry.isExpired()) {
+                    removeLocked(bundle.getKey(), bundle.getValue(), e.getKey(), entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts a loaded bundle, or a remembered failure to load one, in
+     * the size of the cache.  If that takes the cache over its bounds,
+     * the least recently used entries are evicted as long as the new
+     * one was requested more often than they were; otherwise the new
+     * one is dropped instead.
+     */
+    private void admit(
+            String bundleName,
+            Locale locale,
+            ConcurrentMap<Locale, Entry> bundlesByLocale,
+            Entry candidate,
+            long weight) {
+        List<Removal> removed = new ArrayList<>();
+        evictionLock.lock();
+        try {
+            FrequencySketch sketch = this.sketch;
+            if (sketch == null
+                    || candidate.weight >= 0
+                    || bundles.get(bundleName) != bundlesByLocale
+                    || bundlesByLocale.get(locale) != candidate) {
+                // Counted, invalidated or no longer bounded meanwhile.
+                return;
+            }
+            count(candidate, weight);
+            if (isOverLimit()) {
+                sweep(System.nanoTime(), removed);
+            }
+            int frequency = sketch.frequency(hash(bundleName, locale));
+            while (isOverLimit()) {
+                Removal victim = findVictim(candidate);
+                if (victim == null || sketch.frequency(hash(victim.bundleName, victim.locale)) >= frequency) {
+                    removeLocked(bundleName, bundlesByLocale, locale, candidate);
+                    rejections.increment();
+                    break;
+                }
+                removeLocked(victim.bundleName, victim.bundlesByLocale, victim.locale, victim.entry);
+                evictions.increment();
+                removed.add(victim);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemoved(removed);
+    }
+
+    /**
+     * Applies changed bounds: counts the cached bundles if the cache
+     * becomes bounded, and evicts the least recently used ones until
+     * it is within its bounds.
+     */
+    private void updatePolicy() {
+        List<Removal> removed = new ArrayList<>();
+        evictionLock.lock();
+        try {
+            if (maxEntries == 0 && maxBytes == 0 && expireAfterAccess == 0) {
+                sketch = null;
+                for (ConcurrentMap<Locale, Entry> bundlesByLocale : bundles.values()) {
+                    for (Entry entry : bundlesByLocale.values()) {
+                        entry.weight = -1;
+                    }
+                }
+                size = 0;
+                bytes = 0;
+                return;
+            }
+
+            sketch = new FrequencySketch(maxEntries > 0 ? maxEntries : DEFAULT_SKETCH_SIZE);
+            long now = System.nanoTime();
+            for (ConcurrentMap<Locale, Entry> bundlesByLocale : bundles.values()) {
+                for (Entry entry : bundlesByLocale.values()) {
+                    ResourceBundle rb = entry.getLoaded();
+                    if (entry.weight < 0 && (rb != null || entry.failure != null)) {
+                        entry.lastAccess = now;
+                        count(entry, rb != null ? estimateBytes(rb) : ENTRY_BYTES);
+                    }
+                }
+            }
+            sweep(now, removed);
+            while (isOverLimit()) {
+                Removal victim = findVictim(null);
+                if (victim == null) {
+                    break;
+                }
+                removeLocked(victim.bundleName, victim.bundlesByLocale, victim.locale, victim.entry);
+                evictions.increment();
+                removed.add(victim);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemoved(removed);
+    }
+
+    /**
+     * Sweeps the cache for idle bundles, at most twice per idle time,
+     * unless another thread is at it.
+     */
+    private void sweepIfDue(long now) {
+        long expireAfterAccess = this.expireAfterAccess;
+        if (expireAfterAccess == 0 || now - nextSweep < 0 || !evictionLock.tryLock()) {
+            return;
+        }
+        List<Removal> removed = new ArrayList<>();
+        try {
+            nextSweep = now + Math.max(expireAfterAccess / 2, ACCESS_GRANULARITY);
+            sweep(now, removed);
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemoved(removed);
+    }
+
+    /**
+     * Drops the idle bundles.  Called with the eviction lock held.
+     */
+    private void sweep(long now, List<Removal> removed) {
+        if (expireAfterAccess == 0) {
+            return;
+        }
+        for (Map.Entry<String, ConcurrentMap<Locale, Entry>> bundle : bundles.entrySet()) {
+            for (Map.Entry<Locale, Entry> e : bundle.getValue().entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.weight >= 0
+                        && isIdle(entry, now)
+                        && removeLocked(bundle.getKey(), bundle.getValue(), e.getKey(), entry)) {
+                    expirations.increment();
+                    removed.add(new Removal(bundle.getKey(), bundle.getValue(), e.getKey(), entry, true));
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the least recently used bundle.  Called with the eviction
+     * lock held; the cost of going through all bundles is small next to
+     * that of the load that precedes it.
+     *
+     * @param candidate A bundle not to choose, or <code>null</code>.
+     * @return The bundle, or <code>null</code> if there is none.
+     */
+    private Removal findVictim(Entry candidate) {
+        Removal victim = null;
+        for (Map.Entry<String, ConcurrentMap<Locale, Entry>> bundle : bundles.entrySet()) {
+            for (Map.Entry<Locale, Entry> e : bundle.getValue().entrySet()) {
+                Entry entry = e.getValue();
+                if (entry.weight >= 0
+                        && entry != candidate
+                        && (victim == null || entry.lastAccess - victim.entry.lastAccess < 0)) {
+                    victim = new Removal(bundle.getKey(), bundle.getValue(), e.getKey(), entry, false);
+                }
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * Counts an entry in the size of the cache.  Called with the
+     * eviction lock held.
+     */
+    private void count(Entry entry, long weight) {
+        entry.weight = weight;
+        size++;
+        bytes += weight;
+    }
+
+    private boolean isOverLimit() {
+        return (maxEntries > 0 && size > maxEntries) || (maxBytes > 0 && bytes > maxBytes);
+    }
+
+    /**
+     * Removes an entry, and the map of its bundle name once empty.
+     *
+     * @return Whether the entry was still cached.
+     */
+    private boolean remove(
+            String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale, Locale locale, Entry entry) {
+        evictionLock.lock();
+        try {
+            return removeLocked(bundleName, bundlesByLocale, locale, entry);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean removeLocked(
+            String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale, Locale locale, Entry entry) {
+        if (!bundlesByLocale.remove(locale, entry)) {
+            return false;
+        }
+        uncount(entry);
+        removeIfEmpty(bundleName, bundlesByLocale);
+        return true;
+    }
+
+    /**
+     * Takes an entry out of the size of the cache and the number of
+     * missing bundles.  Called with the eviction lock held.
+     */
+    private void uncount(Entry entry) {
+        if (entry.weight >= 0) {
+            size--;
+            bytes -= entry.weight;
+            entry.weight = -1;
+        }
+        if (entry.missing) {
+            missingBundles--;
+            entry.missing = false;
+        }
+    }
+
+    /**
+     * Removes an entry that is not counted in the size of the cache,
+     * such as one still loading, and the map of its bundle name once
+     * empty.
+     */
+    private void removeUncounted(
+            String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale, Locale locale, Entry entry) {
+        if (bundlesByLocale.remove(locale, entry)) {
+            removeIfEmpty(bundleName, bundlesByLocale);
+        }
+    }
+
+    /**
+     * Drops the map of a bundle name if it is empty, together with the
+     * bundle locales found for its requested locales.  The check is
+     * made within the map of all bundles, so that threads adding
+     * entries to the map at the same time see it dropped; see
+     * {@link #isAttached(String, ConcurrentMap, Locale, Entry)}.
+     */
+    private void removeIfEmpty(String bundleName, ConcurrentMap<Locale, Entry> bundlesByLocale) {
+        if (bundlesByLocale.isEmpty()) {
+            bundles.computeIfPresent(bundleName, (name, current) -> {
+                if (current != bundlesByLocale || !current.isEmpty()) {
+                    return current;
+                }
+                resolvedLocales.remove(name);
+                return null;
+            });
+        }
+    }
+
+    private void notifyRemoved(List<Removal> removed) {
+        RemovalListener removalListener = this.removalListener;
+        for (Removal removal : removed) {
+            removalListener.removed(removal.bundleName, removal.locale, removal.expired);
+        }
+    }
+
+    /**
+     * Waits for a load started by another thread, or returns the
+     * result of an earlier one.
+     */
+    private static ResourceBundle join(CompletableFuture<ResourceBundle> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * The bundle caches of class loaders, such as those of Maven plugin
+ * realms.  Class loaders are only weakly referenced, so that the cache
+ * of a class loader goes once the class loader is discarded, and the
+ * cached bundles must not refer to their class loader either.  Only
+ * bundles that {@link BundleControl} copied are cached; others, such
+ * as class bundles with values of classes of their class loader, are
+ * loaded again on every request, from the cache of
+ * <code>ResourceBundle</code>, which holds its class loaders weakly and
+ * its bundles softly.  Caches of collected class loaders are dropped on
+ * the next request for any cache.
+ */
+final class BundleCaches {
+    /**
+     * A class loader, compared by identity.
+     */
+    private static final class LoaderKey extends WeakReference<ClassLoader> {
+        private final int hash;
+
+        LoaderKey(ClassLoader loader, ReferenceQueue<ClassLoader> queue) {
+            super(loader, queue);
+            this.hash = System.identityHashCode(loader);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LoaderKey)) {
+                return false;
+            }
+            ClassLoader loader = get();
+            return loader != null && loader == ((LoaderKey) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final ConcurrentMap<LoaderKey, BundleCache> caches = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+
+    /**
+     * Configures new caches as the other caches are.
+     */
+    private final Consumer<BundleCache> configurer;
+
+    BundleCaches(Consumer<BundleCache> configurer) {
+        this.configurer = configurer;
+    }
+
+    /**
+     * @return The cache of <code>loader</code>, created on first use.
+     */
+    BundleCache get(ClassLoader loader) {
+        expungeCollected();
+        BundleCache cache = caches.get(new LoaderKey(loader, null));
+        if (cache == null) {
+            cache = caches.computeIfAbsent(new LoaderKey(loader, collected), key -> {
+                BundleCache created = new BundleCache();
+                created.setCacheable(BundleControl::isDetached);
+                configurer.accept(created);
+                return created;
+            });
+        }
+        return cache;
+    }
+
+    /**
+     * Applies <code>action</code> to the cache of every class loader, as
+     * when the configuration changes or bundles are reloaded.
+     */
+    void forEach(Consumer<BundleCache> action) {
+        expungeCollected();
+        caches.values().forEach(action);
+    }
+
+    /**
+     * @return The number of class loaders that have a cache.
+     */
+    int size() {
+        expungeCollected();
+        return caches.size();
+    }
+
+    void clear() {
+        caches.clear();
+    }
+
+    /**
+     * Drops the caches of the class loaders that were collected.
+     */
+    private void expungeCollected() {
+        Reference<? extends ClassLoader> key;
+        while ((key = collected.poll()) != null) {
+            caches.remove(key);
+        }
+    }
+}
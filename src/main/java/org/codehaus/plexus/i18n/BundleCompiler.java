@@ -0,0 +1,288 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PropertyResourceBundle;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles <code>.properties</code> bundles into a catalog that
+ * {@link DefaultI18N} loads instead of the bundles, so that it neither
+ * probes the class path for each candidate locale nor parses the
+ * properties at run time.  The catalog also records which locales
+ * each bundle is available in.
+ * <p>
+ * Run it at build time, for instance with the
+ * <code>exec-maven-plugin</code> in the <code>process-classes</code>
+ * phase:
+ * <pre>
+ * java org.codehaus.plexus.i18n.BundleCompiler \
+ *     target/classes/META-INF/plexus/i18n.catalog \
+ *     com.example.Messages,com.example.Errors target/classes
+ * </pre>
+ * Only the named bundles are compiled, so other properties files in
+ * the directories, such as configuration files, are left alone.
+ * Bundles that also have <code>.class</code> files in the given
+ * directories are left out, as they cannot be compiled.  Bundles the
+ * catalog does not have are still loaded from the class path.
+ */
+public final class BundleCompiler {
+    private static final String PROPERTIES = ".properties";
+
+    private static final String CLASS = ".class";
+
+    /**
+     * A locale as it appears in bundle file names, such as
+     * <code>de</code>, <code>de_CH</code>, <code>zh_Hant_TW</code> or
+     * <code>en__POSIX</code>.
+     */
+    private static final Pattern LOCALE_SUFFIX =
+            Pattern.compile("([a-z]{2,3})?(_[A-Z][a-z]{3})?(_([A-Z]{2}|[0-9]{3})?(_[A-Za-z0-9]+)?)?");
+
+    private static final Comparator<byte[]> UNSIGNED_BYTES = (a, b) -> {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return a.length - b.length;
+    };
+
+    private BundleCompiler() {}
+
+    /**
+     * @param args The catalog file to write, the comma-separated names
+     *             of the bundles to compile, and the directories to look
+     *             for them in.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: java " + BundleCompiler.class.getName()
+                    + " <catalog> <bundle>[,<bundle>...] <directory>...");
+            System.exit(1);
+        }
+        List<String> bundleNames = new ArrayList<>();
+        for (String bundleName : args[1].split(",")) {
+            if (!bundleName.trim().isEmpty()) {
+                bundleNames.add(bundleName.trim());
+            }
+        }
+        List<Path> directories = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            directories.add(Paths.get(args[i]));
+        }
+        Map<String, List<String>> manifest = compile(Paths.get(args[0]), bundleNames, directories);
+        for (Map.Entry<String, List<String>> e : manifest.entrySet()) {
+            System.out.println(e.getKey() + ": " + e.getValue());
+        }
+        System.out.println("Compiled " + manifest.size() + " bundles into " + args[0]);
+    }
+
+    /**
+     * Compiles the named bundles found in the given directories, which
+     * are roots of the class path, into a catalog.
+     *
+     * @param catalog     The catalog file to write.
+     * @param bundleNames The names of the bundles to compile.
+     * @param directories The directories to look for bundles in.
+     * @return The locales of each compiled bundle, as in bundle file
+     *         names (empty for the base bundle), by bundle name.
+     * @throws IOException Unable to read a bundle or to write the
+     *                     catalog.
+     */
+    public static Map<String, List<String>> compile(
+            Path catalog, Collection<String> bundleNames, List<Path> directories) throws IOException {
+        // bundle name -> locale suffix -> file
+        Map<String, Map<String, Path>> files = new TreeMap<>();
+        Set<String> classBundles = new HashSet<>();
+        for (Path directory : directories) {
+            for (String bundleName : bundleNames) {
+                int dot = bundleName.lastIndexOf('.');
+                Path packageDirectory =
+                        dot < 0 ? directory : directory.resolve(bundleName.substring(0, dot).replace('.', '/'));
+                if (!Files.isDirectory(packageDirectory)) {
+                    continue;
+                }
+                List<Path> paths;
+                try (Stream<Path> list = Files.list(packageDirectory)) {
+                    paths = list.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                }
+                for (Path path : paths) {
+                    String fileName = path.getFileName().toString();
+                    boolean properties = fileName.endsWith(PROPERTIES);
+                    if (!properties && !fileName.endsWith(CLASS)) {
+                        continue;
+                    }
+                    String[] split = splitBundleName(
+                            bundleName.substring(0, dot + 1) + fileName.substring(0, fileName.lastIndexOf('.')));
+                    if (!split[0].equals(bundleName)) {
+                        continue;
+                    }
+                    if (properties) {
+                        files.computeIfAbsent(bundleName, n -> new TreeMap<>()).putIfAbsent(split[1], path);
+                    } else {
+                        classBundles.add(bundleName);
+                    }
+                }
+            }
+        }
+        files.keySet().removeAll(classBundles);
+
+        // bundle name -> locale suffix -> key -> value
+        Map<String, Map<String, Map<byte[], String>>> bundles = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Path>> bundle : files.entrySet()) {
+            Map<String, Map<byte[], String>> locales = new LinkedHashMap<>();
+            for (Map.Entry<String, Path> file : bundle.getValue().entrySet()) {
+                PropertyResourceBundle rb;
+                try (InputStream in = Files.newInputStream(file.getValue())) {
+                    rb = new PropertyResourceBundle(in);
+                }
+                Map<byte[], String> entries = new TreeMap<>(UNSIGNED_BYTES);
+                for (String key : rb.keySet()) {
+                    entries.put(key.getBytes(StandardCharsets.UTF_8), rb.getString(key));
+                }
+                locales.put(file.getKey(), entries);
+            }
+            bundles.put(bundle.getKey(), locales);
+        }
+
+        Path parent = catalog.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (OutputStream out = Files.newOutputStream(catalog)) {
+            write(bundles, out);
+        }
+
+        Map<String, List<String>> manifest = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Map<byte[], String>>> bundle : bundles.entrySet()) {
+            manifest.put(bundle.getKey(), new ArrayList<>(bundle.getValue().keySet()));
+        }
+        return manifest;
+    }
+
+    /**
+     * Splits the name of a bundle file into the bundle name and the
+     * locale suffix, taking the longest suffix that looks like a locale.
+     */
+    static String[] splitBundleName(String name) {
+        int simpleName = name.lastIndexOf('.') + 1;
+        for (int i = name.indexOf('_', simpleName + 1); i != -1; i = name.indexOf('_', i + 1)) {
+            String suffix = name.substring(i + 1);
+            if (!suffix.isEmpty() && LOCALE_SUFFIX.matcher(suffix).matches()) {
+                return new String[] {name.substring(0, i), suffix};
+            }
+        }
+        return new String[] {name, ""};
+    }
+
+    /**
+     * Writes the bundles in the format described by {@link Catalog}.
+     * Equal strings are written once.
+     */
+    private static void write(Map<String, Map<String, Map<byte[], String>>> bundles, OutputStream out)
+            throws IOException {
+        int bundleCount = 0;
+        int tablesSize = 0;
+        for (Map<String, Map<byte[], String>> locales : bundles.values()) {
+            for (Map<byte[], String> entries : locales.values()) {
+                bundleCount++;
+                tablesSize += 4 + entries.size() * 8;
+            }
+        }
+        int tablesStart = 12 + bundleCount * 12;
+        OffsetPool strings = new OffsetPool(tablesStart + tablesSize);
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(Catalog.MAGIC);
+        data.writeInt(Catalog.VERSION);
+        data.writeInt(bundleCount);
+        int table = tablesStart;
+        for (Map.Entry<String, Map<String, Map<byte[], String>>> bundle : bundles.entrySet()) {
+            for (Map.Entry<String, Map<byte[], String>> locale : bundle.getValue().entrySet()) {
+                data.writeInt(strings.add(bundle.getKey().getBytes(StandardCharsets.UTF_8)));
+                data.writeInt(strings.add(locale.getKey().getBytes(StandardCharsets.UTF_8)));
+                data.writeInt(table);
+                table += 4 + locale.getValue().size() * 8;
+            }
+        }
+        for (Map<String, Map<byte[], String>> locales : bundles.values()) {
+            for (Map<byte[], String> entries : locales.values()) {
+                data.writeInt(entries.size());
+                for (Map.Entry<byte[], String> entry : entries.entrySet()) {
+                    data.writeInt(strings.add(entry.getKey()));
+                    data.writeInt(strings.add(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+                }
+            }
+        }
+        for (byte[] string : strings.strings) {
+            data.writeInt(string.length);
+            data.write(string);
+        }
+        data.flush();
+    }
+
+    /**
+     * Assigns offsets to distinct strings, in order of first use.
+     */
+    private static final class OffsetPool {
+        private final Map<String, Integer> offsets = new LinkedHashMap<>();
+
+        private final List<byte[]> strings = new ArrayList<>();
+
+        private int next;
+
+        OffsetPool(int start) {
+            this.next = start;
+        }
+
+        int add(byte[] string) {
+            // ISO-8859-1 maps each byte to a distinct char, so equal
+            // strings have equal keys.
+            String key = new String(string, StandardCharsets.ISO_8859_1);
+            Integer offset = offsets.get(key);
+            if (offset == null) {
+                offset = next;
+                offsets.put(key, offset);
+                strings.add(string);
+                next += 4 + string.length;
+            }
+            return offset;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * Loads class and properties bundles without falling back to the
+ * default locale, as {@link DefaultI18N} does its own fallback.  The
+ * keys and values of properties bundles are shared through a
+ * {@link StringPool}, across locales and bundles, and large properties
+ * files are loaded as {@link LazyPropertiesBundle}s.  Class bundles of
+ * other class loaders that list all their keys are copied in the same
+ * way, so that, like properties bundles, they do not keep the class
+ * loader they come from alive.
+ */
+final class BundleControl extends ResourceBundle.Control {
+    /**
+     * Lets <code>ResourceBundle</code> cache the bundles it loads.
+     */
+    static final BundleControl CACHING = new BundleControl(true);
+
+    /**
+     * Loads bundles afresh every time, for bundles that are reloaded
+     * when their files change.
+     */
+    static final BundleControl NON_CACHING = new BundleControl(false);
+
+    /**
+     * The strings of all loaded properties bundles.
+     */
+    static final StringPool STRINGS = new StringPool();
+
+    /**
+     * From this size on, in bytes, properties files are indexed rather
+     * than parsed when loaded.  Smaller files are parsed at once, so
+     * that their messages can be merged into a {@link MessageIndex}.
+     */
+    static final int LAZY_LOADING_THRESHOLD = 64 * 1024;
+
+    /**
+     * The methods with which a bundle looks up or lists its keys.
+     */
+    private static final Set<String> KEY_METHODS = new HashSet<>(
+            Arrays.asList("handleGetObject", "handleKeySet", "getKeys", "keySet", "containsKey"));
+
+    /**
+     * Whether a subclass of <code>ListResourceBundle</code> or
+     * <code>PropertyResourceBundle</code> leaves looking up and listing
+     * keys to its superclass, by class, so that lookups need not
+     * reflect.
+     */
+    private static final ClassValue<Boolean> LISTS_ALL_KEYS = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            for (Class<?> c = type;
+                    c != ListResourceBundle.class && c != PropertyResourceBundle.class;
+                    c = c.getSuperclass()) {
+                for (Method method : c.getDeclaredMethods()) {
+                    if (KEY_METHODS.contains(method.getName()) && !method.isSynthetic()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    };
+
+    private final boolean caching;
+
+    private BundleControl(boolean caching) {
+        this.caching = caching;
+    }
+
+    @Override
+    public List<String> getFormats(String baseName) {
+        if (baseName == null) {
+            throw new NullPointerException();
+        }
+        return FORMAT_DEFAULT;
+    }
+
+    @Override
+    public Locale getFallbackLocale(String baseName, Locale locale) {
+        if (baseName == null) {
+            throw new NullPointerException();
+        }
+        return null;
+    }
+
+    @Override
+    public long getTimeToLive(String baseName, Locale locale) {
+        return caching ? super.getTimeToLive(baseName, locale) : TTL_DONT_CACHE;
+    }
+
+    @Override
+    public ResourceBundle newBundle(String baseName, Locale locale, String format, ClassLoader loader, boolean reload)
+            throws IllegalAccessException, InstantiationException, IOException {
+        if (!"java.properties".equals(format)) {
+            ResourceBundle rb = super.newBundle(baseName, locale, format, loader, reload);
+            return rb != null && !isShared(rb.getClass().getClassLoader()) ? detach(rb) : rb;
+        }
+
+        String resourceName = toResourceName(toBundleName(baseName, locale), "properties");
+        InputStream in;
+        if (reload) {
+            URL url = loader.getResource(resourceName);
+            if (url == null) {
+                return null;
+            }
+            URLConnection connection = url.openConnection();
+            connection.setUseCaches(false);
+            in = connection.getInputStream();
+        } else {
+            in = loader.getResourceAsStream(resourceName);
+            if (in == null) {
+                return null;
+            }
+        }
+        byte[] bytes;
+        try {
+            bytes = readFully(in);
+        } finally {
+            in.close();
+        }
+
+        if (bytes.length >= LAZY_LOADING_THRESHOLD) {
+            return LazyPropertiesBundle.of(bytes, STRINGS);
+        }
+        return PooledResourceBundle.of(new PropertyResourceBundle(new ByteArrayInputStream(bytes)), STRINGS);
+    }
+
+    /**
+     * Copies a class bundle of another class loader, such as that of a
+     * Maven plugin realm, into a pooled bundle, so that cached bundles
+     * do not keep the class loader alive.  Only bundles whose key set is
+     * known to be complete are copied, and only if none of their values
+     * are of classes of that class loader; others are left as they are,
+     * and {@link BundleCaches} does not cache them.
+     */
+    private static ResourceBundle detach(ResourceBundle rb) {
+        if (!listsAllKeys(rb)) {
+            return rb;
+        }
+        for (String key : rb.keySet()) {
+            Object value = rb.getObject(key);
+            if (value != null && !isShared(value.getClass().getClassLoader())) {
+                return rb;
+            }
+        }
+        return PooledResourceBundle.of(rb, STRINGS);
+    }
+
+    /**
+     * @return Whether the key set of a bundle has all the keys it
+     *         answers, as that of <code>ListResourceBundle</code>s and
+     *         <code>PropertyResourceBundle</code>s does unless a
+     *         subclass looks up or lists keys on its own.
+     */
+    static boolean listsAllKeys(ResourceBundle rb) {
+        return (rb instanceof ListResourceBundle || rb instanceof PropertyResourceBundle)
+                && LISTS_ALL_KEYS.get(rb.getClass());
+    }
+
+    /**
+     * @return Whether a bundle and its parents are all copies made by
+     *         this class, so that caching it keeps no class loader
+     *         alive.  The parents of class bundles cannot be seen, so
+     *         those are not counted as copies even if they come from a
+     *         shared class loader.
+     */
+    static boolean isDetached(ResourceBundle rb) {
+        ResourceBundle b = rb;
+        while (b != null) {
+            if (b instanceof PooledResourceBundle) {
+                b = ((PooledResourceBundle) b).getParent();
+            } else if (b instanceof LazyPropertiesBundle) {
+                b = ((LazyPropertiesBundle) b).getParent();
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether <code>loader</code> is the class loader of this
+     *         class or one of its parents, so that referring to it
+     *         keeps no other class loader alive.
+     */
+    static boolean isShared(ClassLoader loader) {
+        for (ClassLoader shared = BundleControl.class.getClassLoader(); shared != null; shared = shared.getParent()) {
+            if (shared == loader) {
+                return true;
+            }
+        }
+        return loader == null;
+    }
+
+    static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return Whether a bundle for <code>locale</code> would use the
+     *         bundle file of <code>fileLocale</code>.
+     */
+    boolean isCandidate(String baseName, Locale locale, Locale fileLocale) {
+        return getCandidateLocales(baseName, locale).contains(fileLocale);
+    }
+}
@@ -0,0 +1,39 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Notified when {@link DefaultI18N} drops cached bundles because their
+ * files changed in development mode, or because the messages of its
+ * {@link MessageSource} changed.
+ *
+ * @see DefaultI18N#addReloadListener(BundleReloadListener)
+ */
+public interface BundleReloadListener {
+    /**
+     * Called after the cached bundles were dropped; they are loaded again
+     * on their next use.  Called from the file watching thread, or from the
+     * thread that fetched the changed messages.
+     *
+     * @param bundleName The name of the bundle.
+     * @param locales    The locales of the bundles that were dropped.
+     */
+    void bundleReloaded(String bundleName, Set<Locale> locales);
+}
@@ -0,0 +1,201 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the directories holding the <code>.properties</code> files of
+ * bundles and reports which bundles and locales changed.  Changes are
+ * collected until no further change arrives for the configured delay
+ * and then reported as one batch, so that saving several files at once
+ * causes a single reload.  Bundles on other class path entries, such as
+ * jar files, are not watched.
+ */
+final class BundleWatcher implements AutoCloseable {
+    /**
+     * Receives the changes.
+     */
+    interface Callback {
+        /**
+         * @param changes The locales of the changed files by bundle name.
+         *                The root bundle is reported as
+         *                <code>Locale.ROOT</code>.
+         */
+        void bundlesChanged(Map<String, Set<Locale>> changes);
+    }
+
+    private static final String SUFFIX = ".properties";
+
+    private final Logger log = LoggerFactory.getLogger(BundleWatcher.class);
+
+    private final WatchService watchService;
+
+    private final Callback callback;
+
+    private final long delayMillis;
+
+    /**
+     * The names of the watched bundles, by directory.
+     */
+    private final Map<Path, Set<String>> bundleNamesByDirectory = new ConcurrentHashMap<>();
+
+    /**
+     * The names of the bundles whose directories are watched, by the
+     * class loader looking for their files, which is only weakly
+     * referenced.
+     */
+    private final Map<ClassLoader, Set<String>> watchedBundleNames = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Thread thread;
+
+    BundleWatcher(Callback callback, long delayMillis) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.callback = callback;
+        this.delayMillis = delayMillis;
+        this.thread = new Thread(this::run, "plexus-i18n-bundle-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Watches the directories in which <code>loader</code> looks for the
+     * files of the named bundle.
+     */
+    void watch(String bundleName, ClassLoader loader) {
+        ClassLoader resolved = loader != null ? loader : ClassLoader.getSystemClassLoader();
+        if (!watchedBundleNames
+                .computeIfAbsent(resolved, l -> ConcurrentHashMap.newKeySet())
+                .add(bundleName)) {
+            return;
+        }
+        int slash = bundleName.lastIndexOf('.');
+        String packagePath = slash == -1 ? "" : bundleName.substring(0, slash).replace('.', '/');
+        try {
+            Enumeration<URL> urls = resolved.getResources(packagePath);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if ("file".equals(url.getProtocol())) {
+                    watch(bundleName, Paths.get(url.toURI()));
+                }
+            }
+        } catch (IOException | URISyntaxException e) {
+            log.warn("Unable to watch the files of bundle {}", bundleName, e);
+        }
+    }
+
+    /**
+     * Watches a directory for files of the named bundle.
+     */
+    void watch(String bundleName, Path directory) throws IOException {
+        directory = directory.toAbsolutePath();
+        Set<String> bundleNames = bundleNamesByDirectory.get(directory);
+        if (bundleNames == null) {
+            directory.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            bundleNames = bundleNamesByDirectory.computeIfAbsent(directory, d -> ConcurrentHashMap.newKeySet());
+        }
+        bundleNames.add(bundleName);
+        log.debug("Watching {} for changes to bundle {}", directory, bundleName);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Map<String, Set<Locale>> changes = new HashMap<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    collect(key, changes);
+                    key = watchService.poll(delayMillis, TimeUnit.MILLISECONDS);
+                }
+                if (!changes.isEmpty()) {
+                    try {
+                        callback.bundlesChanged(changes);
+                    } catch (RuntimeException e) {
+                        log.warn("Unable to reload bundles {}", changes.keySet(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void collect(WatchKey key, Map<String, Set<Locale>> changes) {
+        Path directory = (Path) key.watchable();
+        Set<String> bundleNames = bundleNamesByDirectory.get(directory);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (bundleNames == null || !(event.context() instanceof Path)) {
+                continue;
+            }
+            String fileName = event.context().toString();
+            if (!fileName.endsWith(SUFFIX)) {
+                continue;
+            }
+            String stem = fileName.substring(0, fileName.length() - SUFFIX.length());
+            for (String bundleName : bundleNames) {
+                String simpleName = bundleName.substring(bundleName.lastIndexOf('.') + 1);
+                Locale locale = null;
+                if (stem.equals(simpleName)) {
+                    locale = Locale.ROOT;
+                } else if (stem.startsWith(simpleName + '_')) {
+                    locale = LocaleDiscovery.toLocale(stem.substring(simpleName.length() + 1));
+                    if (locale == null) {
+                        // Cannot tell which locales use the file.
+                        locale = Locale.ROOT;
+                    }
+                }
+                if (locale != null) {
+                    changes.computeIfAbsent(bundleName, n -> new HashSet<>()).add(locale);
+                }
+            }
+        }
+        key.reset();
+    }
+}
@@ -0,0 +1,346 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A precompiled set of bundles, as written by {@link BundleCompiler}.
+ * Bundles are served straight from the catalog, without probing the
+ * class path for each candidate locale or parsing properties files,
+ * and values are only decoded when they are looked up.  Catalogs in
+ * files are memory-mapped rather than read, so that they stay off the
+ * heap and are shared through the page cache by all JVMs on a host.
+ * <p>
+ * All numbers in the catalog are big-endian <code>int</code>s, and all
+ * offsets are counted from the start of the catalog:
+ * <pre>
+ * catalog   := MAGIC VERSION bundleCount directory* table* string*
+ * directory := nameOffset localeOffset tableOffset
+ * table     := size (keyOffset valueOffset)*   (keys sorted by their UTF-8 bytes)
+ * string    := byteCount UTF-8 bytes
+ * </pre>
+ * The locale of a bundle is stored as in bundle file names, such as
+ * <code>de_CH</code>, and is empty for the base bundle.  The directory
+ * thus doubles as the manifest of the locales of each bundle.  As
+ * offsets are <code>int</code>s, a catalog is limited to 2 GB.
+ */
+final class Catalog {
+    /**
+     * Where {@link DefaultI18N} looks for catalogs on the class path.
+     */
+    static final String RESOURCE = "META-INF/plexus/i18n.catalog";
+
+    static final int MAGIC = 0x504c5849;
+
+    static final int VERSION = 1;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * The offsets of the tables of the bundles, by bundle name and
+     * locale.
+     */
+    private final Map<String, Map<Locale, Integer>> tables;
+
+    private final ConcurrentMap<Integer, CatalogBundle> bundles = new ConcurrentHashMap<>();
+
+    private Catalog(ByteBuffer buffer, Map<String, Map<Locale, Integer>> tables) {
+        this.buffer = buffer;
+        this.tables = tables;
+    }
+
+    /**
+     * Reads a catalog from a buffer, which must not be modified
+     * afterwards.  The header, the directory and the bounds of the
+     * tables are checked up front, so that a buffer that does not hold
+     * a catalog is rejected here.  The strings of the tables are only
+     * checked as lookups reach them, so that reading a mapped catalog
+     * does not fault in all of its pages; a lookup that reaches a
+     * corrupt string throws <code>IllegalStateException</code>.
+     *
+     * @throws IOException The buffer does not hold a valid catalog.
+     */
+    static Catalog read(ByteBuffer buffer) throws IOException {
+        buffer = buffer.asReadOnlyBuffer();
+        try {
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a message catalog");
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unsupported message catalog version " + buffer.getInt(4));
+            }
+            int bundleCount = buffer.getInt(8);
+            if (bundleCount < 0 || bundleCount > (buffer.limit() - 12) / 12) {
+                throw new IOException("Truncated message catalog");
+            }
+            Map<String, Map<Locale, Integer>> tables = new HashMap<>();
+            for (int i = 0; i < bundleCount; i++) {
+                int entry = 12 + i * 12;
+                String bundleName = getString(buffer, checkString(buffer, buffer.getInt(entry)));
+                String suffix = getString(buffer, checkString(buffer, buffer.getInt(entry + 4)));
+                Locale locale = suffix.isEmpty() ? Locale.ROOT : LocaleDiscovery.toLocale(suffix);
+                if (locale == null) {
+                    throw new IOException("Invalid locale " + suffix + " of bundle " + bundleName);
+                }
+                int table = checkTable(buffer, buffer.getInt(entry + 8));
+                tables.computeIfAbsent(bundleName, n -> new HashMap<>()).put(locale, table);
+            }
+            return new Catalog(buffer, tables);
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Truncated message catalog", e);
+        }
+    }
+
+    /**
+     * Checks that a table lies within the catalog.  The strings it
+     * points to are checked by {@link #checkEntryString(int)}.
+     *
+     * @return The offset of the table.
+     * @throws IOException The table is out of bounds.
+     */
+    private static int checkTable(ByteBuffer buffer, int table) throws IOException {
+        if (table < 0 || table > buffer.limit() - 4) {
+            throw new IOException("Invalid table offset " + table);
+        }
+        int size = buffer.getInt(table);
+        if (size < 0 || size > (buffer.limit() - table - 4) / 8) {
+            throw new IOException("Invalid size " + size + " of table " + table);
+        }
+        return table;
+    }
+
+    /**
+     * Checks that a string lies within the catalog.
+     *
+     * @return The offset of the string.
+     * @throws IOException The string is out of bounds.
+     */
+    private static int checkString(ByteBuffer buffer, int offset) throws IOException {
+        if (!isString(buffer, offset)) {
+            throw new IOException("Invalid string " + offset);
+        }
+        return offset;
+    }
+
+    /**
+     * Checks that a string of a table lies within the catalog, so that
+     * lookups never read outside of it.
+     *
+     * @return The offset of the string.
+     * @throws IllegalStateException The string is out of bounds.
+     */
+    private int checkEntryString(int offset) {
+        if (!isString(buffer, offset)) {
+            throw new IllegalStateException("Corrupt message catalog: invalid string " + offset);
+        }
+        return offset;
+    }
+
+    /**
+     * @return Whether the offset and the length of a string lie within
+     *         the catalog.
+     */
+    private static boolean isString(ByteBuffer buffer, int offset) {
+        if (offset < 0 || offset > buffer.limit() - 4) {
+            return false;
+        }
+        int length = buffer.getInt(offset);
+        return length >= 0 && length <= buffer.limit() - offset - 4;
+    }
+
+    /**
+     * Maps a catalog file into memory.
+     */
+    static Catalog map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Message catalog " + file + " is larger than 2 GB");
+            }
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Maps a catalog into memory if it is a file, or else reads it.
+     */
+    static Catalog load(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return map(Paths.get(url.toURI()));
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                // read it
+            }
+        }
+        URLConnection connection = url.openConnection();
+        connection.setUseCaches(false);
+        try (InputStream in = connection.getInputStream()) {
+            return read(ByteBuffer.wrap(BundleControl.readFully(in)));
+        }
+    }
+
+    /**
+     * @return Whether the catalog is kept outside of the heap, such as
+     *         a mapped file.
+     */
+    boolean isOffHeap() {
+        return buffer.isDirect();
+    }
+
+    /**
+     * @return Whether the catalog has the named bundle, in any locale.
+     */
+    boolean contains(String bundleName) {
+        return tables.containsKey(bundleName);
+    }
+
+    /**
+     * @return The locales the named bundle is available in.
+     */
+    Set<Locale> getLocales(String bundleName) {
+        Map<Locale, Integer> locales = tables.get(bundleName);
+        return locales != null ? Collections.unmodifiableSet(locales.keySet()) : Collections.<Locale>emptySet();
+    }
+
+    /**
+     * Finds a bundle as <code>ResourceBundle.getBundle</code> does: the
+     * bundle of the first candidate locale of <code>control</code> that
+     * the catalog has, with the bundles of the following candidates as
+     * its parents.  The fallback locale of <code>control</code> is not
+     * used.
+     *
+     * @throws MissingResourceException Bundle not found.
+     */
+    ResourceBundle getBundle(String bundleName, Locale locale, ResourceBundle.Control control) {
+        Map<Locale, Integer> locales = tables.get(bundleName);
+        if (locales != null) {
+            List<Locale> candidates = control.getCandidateLocales(bundleName, locale);
+            for (int i = 0; i < candidates.size(); i++) {
+                if (locales.containsKey(candidates.get(i))) {
+                    return getBundle(locales, candidates, i);
+                }
+            }
+        }
+        throw new MissingResourceException(
+                "Can't find bundle for base name " + bundleName + ", locale " + locale, bundleName + '_' + locale, "");
+    }
+
+    private CatalogBundle getBundle(Map<Locale, Integer> locales, List<Locale> candidates, int index) {
+        Locale locale = candidates.get(index);
+        Integer table = locales.get(locale);
+        CatalogBundle rb = bundles.get(table);
+        if (rb == null) {
+            CatalogBundle parent = null;
+            for (int i = index + 1; i < candidates.size() && parent == null; i++) {
+                if (locales.containsKey(candidates.get(i))) {
+                    parent = getBundle(locales, candidates, i);
+                }
+            }
+            rb = new CatalogBundle(this, table, locale, parent);
+            CatalogBundle existing = bundles.putIfAbsent(table, rb);
+            if (existing != null) {
+                rb = existing;
+            }
+        }
+        return rb;
+    }
+
+    /**
+     * @return The value of the key in the table, or <code>null</code> if
+     *         the table does not have the key.
+     * @throws IllegalStateException The catalog is corrupt.
+     */
+    String getValue(int table, String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = buffer.getInt(table) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = table + 4 + mid * 8;
+            int cmp = compare(checkEntryString(buffer.getInt(entry)), bytes);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return getString(buffer, checkEntryString(buffer.getInt(entry + 4)));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The keys of the table, in catalog order.
+     * @throws IllegalStateException The catalog is corrupt.
+     */
+    Set<String> getKeys(int table) {
+        int size = buffer.getInt(table);
+        Set<String> keys = new LinkedHashSet<>(Math.max(16, size * 4 / 3 + 1));
+        for (int i = 0; i < size; i++) {
+            keys.add(getString(buffer, checkEntryString(buffer.getInt(table + 4 + i * 8))));
+        }
+        return keys;
+    }
+
+    /**
+     * Compares the string at <code>offset</code> with <code>bytes</code>,
+     * byte by byte as unsigned values.
+     */
+    private int compare(int offset, byte[] bytes) {
+        int length = buffer.getInt(offset);
+        int start = offset + 4;
+        int n = Math.min(length, bytes.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = (buffer.get(start + i) & 0xff) - (bytes[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - bytes.length;
+    }
+
+    private static String getString(ByteBuffer buffer, int offset) {
+        int length = buffer.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset + 4);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
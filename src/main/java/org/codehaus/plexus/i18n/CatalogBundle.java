@@ -0,0 +1,108 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * A bundle of a {@link Catalog}.  Values are decoded from the catalog
+ * on each lookup.
+ */
+final class CatalogBundle extends ResourceBundle {
+    private final Catalog catalog;
+
+    private final int table;
+
+    private final Locale locale;
+
+    private volatile Set<String> keys;
+
+    CatalogBundle(Catalog catalog, int table, Locale locale, ResourceBundle parent) {
+        this.catalog = catalog;
+        this.table = table;
+        this.locale = locale;
+        setParent(parent);
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * @return Whether the values of the bundle are kept outside of the
+     *         heap.
+     */
+    boolean isOffHeap() {
+        return catalog.isOffHeap();
+    }
+
+    /**
+     * Looks up a key in this bundle and its parents without throwing
+     * <code>MissingResourceException</code>.
+     *
+     * @return The value, or <code>null</code> if none.
+     */
+    String find(String key) {
+        String value = catalog.getValue(table, key);
+        if (value == null && parent != null) {
+            value = parent instanceof CatalogBundle
+                    ? ((CatalogBundle) parent).find(key)
+                    : (parent.containsKey(key) ? parent.getString(key) : null);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return find(key) != null;
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+        Set<String> keys = new LinkedHashSet<>(handleKeySet());
+        if (parent != null) {
+            keys.addAll(parent.keySet());
+        }
+        return Collections.enumeration(keys);
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return catalog.getValue(table, key);
+    }
+
+    @Override
+    protected Set<String> handleKeySet() {
+        Set<String> keys = this.keys;
+        if (keys == null) {
+            keys = Collections.unmodifiableSet(catalog.getKeys(table));
+            this.keys = keys;
+        }
+        return keys;
+    }
+}
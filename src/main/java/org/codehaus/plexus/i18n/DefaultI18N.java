@@ -19,12 +19,36 @@ package org.codehaus.plexus.i18n;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
-import java.text.MessageFormat;
-import java.util.HashMap;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListResourceBundle;
 import java.util.Locale;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,291 +58,1749 @@ import org.slf4j.LoggerFactory;
  */
 @Named
 @Singleton
-public class DefaultI18N implements I18N {
+public class DefaultI18N implements I18N, Closeable {
 
     private final Logger log = LoggerFactory.getLogger(DefaultI18N.class);
     private static final Object[] NO_ARGS = new Object[0];
 
-    private Map<String, Map<Locale, ResourceBundle>> bundles;
+    /**
+     * Marks requested bundles whose keys cannot be merged into a
+     * {@link MessageIndex}.
+     */
+    private static final MessageIndex NOT_INDEXED = MessageIndex.of(Collections.<ResourceBundle>emptyList());
+
+    /**
+     * Stands in for bundles that were not found when
+     * {@link #setEmptyBundleForMissing(boolean)} is enabled.
+     */
+    private static final ResourceBundle EMPTY_BUNDLE = new ListResourceBundle() {
+        @Override
+        protected Object[][] getContents() {
+            return new Object[0][];
+        }
+    };
+
+    /**
+     * The default number of compiled message formats kept by
+     * {@link #format(String, Locale, String, Object[])}.
+     */
+    public static final int DEFAULT_MESSAGE_FORMAT_CACHE_SIZE = 1024;
+
+    /**
+     * The default number of <code>Accept-Language</code> headers whose
+     * resolved locale is remembered by {@link #getLocale(String)}.
+     */
+    public static final int DEFAULT_LOCALE_CACHE_SIZE = 256;
+
+    /**
+     * How long, in milliseconds, to wait for further changes to bundle
+     * files before reloading them in development mode.
+     */
+    private static final long RELOAD_DELAY = 200;
+
+    /**
+     * The default number of threads loading bundles in
+     * {@link #warmUp()}.
+     */
+    public static final int DEFAULT_WARM_UP_THREADS =
+            Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Stands for all locales a bundle is available in, in the list of
+     * locales to warm up.
+     */
+    public static final String ALL_LOCALES = "*";
+
+    /**
+     * The default time, in milliseconds, after which the messages of a
+     * {@link MessageSource} are fetched again.
+     */
+    public static final long DEFAULT_MESSAGE_SOURCE_REFRESH_INTERVAL = 60000;
+
+    /**
+     * The number of requested bundle names and locales whose message
+     * index is remembered.
+     */
+    private static final int INDEX_KEY_CACHE_SIZE = 1024;
+
+    private final BundleCache bundles = new BundleCache();
+
+    /**
+     * The class loader of this component, from which bundles are loaded
+     * unless another one is given.
+     */
+    private final ClassLoader classLoader = DefaultI18N.class.getClassLoader() != null
+            ? DefaultI18N.class.getClassLoader()
+            : ClassLoader.getSystemClassLoader();
+
+    /**
+     * The bundles of other class loaders, by class loader.
+     */
+    private final BundleCaches bundlesByLoader = new BundleCaches(this::configureBundleCache);
+
+    /**
+     * Compiled message patterns by bundle, locale and key.
+     */
+    private BoundedCache<MessageKey, MessageTemplate> messageFormats;
+
+    private int messageFormatCacheSize = DEFAULT_MESSAGE_FORMAT_CACHE_SIZE;
+
+    /**
+     * Locales already resolved from <code>Accept-Language</code> headers.
+     */
+    private BoundedCache<String, Locale> localesByHeader;
+
+    private int localeCacheSize = DEFAULT_LOCALE_CACHE_SIZE;
+
+    /**
+     * The locales negotiated from <code>Accept-Language</code> headers,
+     * by bundle name.
+     */
+    private ConcurrentMap<String, BoundedCache<String, Locale>> negotiatedLocales;
+
+    /**
+     * The locales each bundle is available in, by bundle name.
+     */
+    private ConcurrentMap<String, Set<Locale>> availableLocales;
+
+    /**
+     * The keys visible through a requested bundle and the list of
+     * default bundles, by requested bundle name and the locales of the
+     * bundles found, so that requested locales falling back to the same
+     * bundles share an index.
+     */
+    private ConcurrentMap<IndexKey, MessageIndex> messageIndexes;
+
+    /**
+     * The key of the message index of a requested bundle name and
+     * locale.
+     */
+    private BoundedCache<MessageKey, IndexKey> indexKeys;
+
+    /**
+     * The keys of the message indexes built from a bundle, by bundle
+     * name and the locale of the bundle, to drop them with the bundle.
+     */
+    private ConcurrentMap<MessageKey, Set<IndexKey>> indexesByBundle;
+
+    /**
+     * Counts the invalidations of message indexes, so that an index
+     * built from bundles that were invalidated meanwhile is not kept.
+     */
+    private final AtomicLong indexGeneration = new AtomicLong();
+
+    private boolean emptyBundleForMissing;
 
     private String[] bundleNames;
 
     private String defaultBundleName;
 
+    /**
+     * The configured default locale, or <code>null</code> to use that of
+     * the JVM.
+     */
+    private Locale defaultLocale;
+
     private boolean devMode;
 
+    /**
+     * Watches the files of loaded bundles in development mode.
+     */
+    private volatile BundleWatcher watcher;
+
+    /**
+     * The precompiled catalogs found on the class path, loaded on first
+     * use.
+     */
+    private volatile List<Catalog> catalogs;
+
+    private String[] catalogFiles = new String[0];
+
+    private final List<BundleReloadListener> reloadListeners = new CopyOnWriteArrayList<>();
+
+    private volatile I18NListener listener = I18NListener.NONE;
+
+    private String[] warmUpLocales = new String[0];
+
+    private int warmUpThreads = DEFAULT_WARM_UP_THREADS;
+
+    private boolean warmUpBlocking;
+
+    /**
+     * The executor loading bundles for the asynchronous methods, or
+     * <code>null</code> for {@link DefaultLoadExecutor}.
+     */
+    private volatile Executor loadExecutor;
+
+    private MessageSource messageSource;
+
+    /**
+     * The messages of {@link #messageSource}, or <code>null</code> if
+     * there is none.
+     */
+    private volatile MessageSourceCache messageSourceCache;
+
+    private boolean messageSourceReplacesBundles;
+
+    private long messageSourceRefreshInterval = DEFAULT_MESSAGE_SOURCE_REFRESH_INTERVAL;
+
     public DefaultI18N() {
         initialize();
     }
 
-    public DefaultI18N(String[] bundleNames) {
-        this.bundleNames = bundleNames != null ? bundleNames.clone() : new String[0];
-        initialize();
+    public DefaultI18N(String[] bundleNames) {
+        this.bundleNames = bundleNames != null ? bundleNames.clone() : new String[0];
+        initialize();
+    }
+    // ----------------------------------------------------------------------
+    // Accessors
+    // ----------------------------------------------------------------------
+
+    public String getDefaultLanguage() {
+        return getDefaultLocale().getLanguage();
+    }
+
+    public String getDefaultCountry() {
+        return getDefaultLocale().getCountry();
+    }
+
+    /**
+     * @return The configured default locale, or else the default locale
+     *         of the JVM.
+     */
+    public Locale getDefaultLocale() {
+        Locale locale = defaultLocale;
+        return locale != null ? locale : Locale.getDefault();
+    }
+
+    /**
+     * Sets the locale used when none is given and the
+     * <code>Accept-Language</code> header cannot be parsed, instead of
+     * the default locale of the JVM, which is then no longer looked up
+     * on every call.
+     *
+     * @param defaultLocale The locale, or <code>null</code> for the
+     *                      default locale of the JVM.
+     */
+    public void setDefaultLocale(Locale defaultLocale) {
+        this.defaultLocale = defaultLocale != null ? LocaleRegistry.intern(defaultLocale) : null;
+    }
+
+    public String getDefaultBundleName() {
+        return defaultBundleName;
+    }
+
+    public String[] getBundleNames() {
+        return bundleNames.clone();
+    }
+
+    public int getMessageFormatCacheSize() {
+        return messageFormatCacheSize;
+    }
+
+    /**
+     * Sets the number of compiled message patterns to keep for the
+     * <code>format</code> methods.  Use <code>0</code> to disable the
+     * cache.
+     *
+     * @param messageFormatCacheSize The maximum number of cached patterns.
+     */
+    public void setMessageFormatCacheSize(int messageFormatCacheSize) {
+        this.messageFormatCacheSize = messageFormatCacheSize;
+        this.messageFormats = new BoundedCache<>(messageFormatCacheSize);
+    }
+
+    public int getLocaleCacheSize() {
+        return localeCacheSize;
+    }
+
+    /**
+     * Sets the number of distinct <code>Accept-Language</code> headers
+     * whose resolved locale is remembered, and whose negotiated locale
+     * is remembered for each bundle.  Use <code>0</code> to parse every
+     * header.
+     *
+     * @param localeCacheSize The maximum number of cached headers.
+     */
+    public void setLocaleCacheSize(int localeCacheSize) {
+        this.localeCacheSize = localeCacheSize;
+        this.localesByHeader = new BoundedCache<>(localeCacheSize);
+        this.negotiatedLocales.clear();
+    }
+
+    public long getMissingBundleTtl() {
+        return bundles.getMissingBundleTtl();
+    }
+
+    /**
+     * Sets how long a bundle that was not found is remembered, so that
+     * further requests for it do not search the class path again.
+     *
+     * @param missingBundleTtl The time in milliseconds, <code>0</code>
+     *                         (the default) to search again on every
+     *                         request, or a negative value to remember
+     *                         missing bundles for ever.
+     */
+    public void setMissingBundleTtl(long missingBundleTtl) {
+        bundles.setMissingBundleTtl(missingBundleTtl);
+        bundlesByLoader.forEach(this::configureBundleCache);
+    }
+
+    public int getBundleCacheMaxEntries() {
+        return bundles.getMaxEntries();
+    }
+
+    /**
+     * Sets the highest number of bundles, by name and locale, kept in
+     * the cache.  When the cache is full, a bundle is only cached if it
+     * was requested more often recently than the least recently used
+     * bundle, which it then evicts, so that popular bundles stay cached
+     * while rarely used ones come and go.  Bundles of other class
+     * loaders, see {@link #getBundle(String, Locale, ClassLoader)}, are
+     * cached separately, with the same bounds.  Missing bundles that are
+     * remembered, see {@link #setMissingBundleTtl(long)}, count too.
+     *
+     * @param bundleCacheMaxEntries The maximum number of bundles, or
+     *                              <code>0</code> (the default) for no
+     *                              limit.
+     */
+    public void setBundleCacheMaxEntries(int bundleCacheMaxEntries) {
+        bundles.setMaxEntries(bundleCacheMaxEntries);
+        bundlesByLoader.forEach(this::configureBundleCache);
+    }
+
+    public long getBundleCacheMaxBytes() {
+        return bundles.getMaxBytes();
+    }
+
+    /**
+     * Sets the highest estimated heap taken by the cached bundles,
+     * evicting bundles as {@link #setBundleCacheMaxEntries(int)} does.
+     * The estimate counts the characters of keys and values; bundles of
+     * precompiled catalogs barely count, as their messages stay in the
+     * catalog.
+     *
+     * @param bundleCacheMaxBytes The maximum size in bytes, or
+     *                            <code>0</code> (the default) for no
+     *                            limit.
+     */
+    public void setBundleCacheMaxBytes(long bundleCacheMaxBytes) {
+        bundles.setMaxBytes(bundleCacheMaxBytes);
+        bundlesByLoader.forEach(this::configureBundleCache);
+    }
+
+    public long getBundleCacheExpireAfterAccess() {
+        return bundles.getExpireAfterAccess();
+    }
+
+    /**
+     * Sets how long a cached bundle that is not requested stays cached.
+     *
+     * @param bundleCacheExpireAfterAccess The time in milliseconds, or
+     *                                     <code>0</code> (the default)
+     *                                     for ever.
+     */
+    public void setBundleCacheExpireAfterAccess(long bundleCacheExpireAfterAccess) {
+        bundles.setExpireAfterAccess(bundleCacheExpireAfterAccess);
+        bundlesByLoader.forEach(this::configureBundleCache);
+    }
+
+    /**
+     * @return The number of cached bundles of the class loader of this
+     *         component, if the bundle cache is bounded, or else
+     *         <code>0</code>.
+     */
+    public int getBundleCacheSize() {
+        return bundles.size();
+    }
+
+    /**
+     * @return The estimated heap taken by the cached bundles of the class
+     *         loader of this component, in bytes, if the bundle cache is
+     *         bounded, or else <code>0</code>.
+     */
+    public long getBundleCacheEstimatedBytes() {
+        return bundles.getEstimatedBytes();
+    }
+
+    /**
+     * @return How many bundles were evicted to make room for others.
+     */
+    public long getBundleEvictionCount() {
+        return bundles.getEvictionCount();
+    }
+
+    /**
+     * @return How many bundles were dropped after not being requested
+     *         for the idle time.
+     */
+    public long getBundleExpirationCount() {
+        return bundles.getExpirationCount();
+    }
+
+    /**
+     * @return How many loaded bundles were not cached, as they were
+     *         requested less often than the bundle they would have
+     *         evicted.
+     */
+    public long getBundleRejectionCount() {
+        return bundles.getRejectionCount();
+    }
+
+    public I18NListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Sets the listener receiving monitoring events, such as an
+     * {@link I18NStatistics}.
+     *
+     * @param listener The listener, or <code>null</code> for none.
+     */
+    public void setListener(I18NListener listener) {
+        this.listener = listener != null ? listener : I18NListener.NONE;
+    }
+
+    public String[] getWarmUpLocales() {
+        return warmUpLocales.clone();
+    }
+
+    /**
+     * Sets the locales whose bundles are loaded ahead of their first
+     * use, and starts loading them.  Locales are given as in bundle file
+     * names or language tags (i.e. <code>de_CH</code> or
+     * <code>de-CH</code>); {@link #ALL_LOCALES} stands for all locales
+     * found on the class path.  The warm-up uses the bundle names,
+     * threads and blocking set so far, so set those first.
+     * {@link #initialize()} warms up the locales again.
+     *
+     * @param warmUpLocales The locales, or <code>null</code> for none.
+     */
+    public void setWarmUpLocales(String[] warmUpLocales) {
+        this.warmUpLocales = warmUpLocales != null ? warmUpLocales.clone() : new String[0];
+        startWarmUp();
+    }
+
+    public int getWarmUpThreads() {
+        return warmUpThreads;
+    }
+
+    /**
+     * Sets the number of threads loading bundles during the warm-up.
+     *
+     * @param warmUpThreads The number of threads.
+     */
+    public void setWarmUpThreads(int warmUpThreads) {
+        this.warmUpThreads = warmUpThreads;
+    }
+
+    public boolean isWarmUpBlocking() {
+        return warmUpBlocking;
+    }
+
+    /**
+     * Sets whether {@link #setWarmUpLocales(String[])} and
+     * {@link #initialize()} wait for the warm-up to finish, rather than
+     * letting it proceed in the background.
+     *
+     * @param warmUpBlocking <code>true</code> to wait.
+     */
+    public void setWarmUpBlocking(boolean warmUpBlocking) {
+        this.warmUpBlocking = warmUpBlocking;
+    }
+
+    public Executor getLoadExecutor() {
+        Executor executor = loadExecutor;
+        return executor != null ? executor : DefaultLoadExecutor.INSTANCE;
+    }
+
+    /**
+     * Sets the executor that loads bundles for
+     * {@link #getBundleAsync(String, Locale)} and
+     * {@link #getStringAsync(String, Locale, String)}.  The default is
+     * a pool of daemon threads shared by all instances; on Java 21 and
+     * later a virtual thread per task executor may be used instead.
+     *
+     * @param loadExecutor The executor, or <code>null</code> for the
+     *                     default.
+     */
+    public void setLoadExecutor(Executor loadExecutor) {
+        this.loadExecutor = loadExecutor;
+    }
+
+    public MessageSource getMessageSource() {
+        return messageSource;
+    }
+
+    /**
+     * Sets a store of messages, such as a database, to consult along
+     * with the bundle files, its messages taking precedence over theirs,
+     * or in their place.  The messages of a bundle and locale are
+     * fetched from the store the first time they are used; afterwards
+     * they are fetched again in the background with the
+     * {@link #setLoadExecutor(Executor) load executor} once the
+     * {@link #setMessageSourceRefreshInterval(long) refresh interval}
+     * has passed, so requests never wait for the store.  If the store
+     * fails, the messages fetched last are kept.  The store is only
+     * consulted for the class loader of this component.
+     *
+     * @param messageSource The store, or <code>null</code> for none.
+     * @see #setMessageSourceReplacesBundles(boolean)
+     */
+    public void setMessageSource(MessageSource messageSource) {
+        this.messageSource = messageSource;
+        resetMessageSource();
+    }
+
+    public boolean isMessageSourceReplacesBundles() {
+        return messageSourceReplacesBundles;
+    }
+
+    /**
+     * Sets whether the bundles are taken from the
+     * {@link #setMessageSource(MessageSource) message source} only,
+     * rather than from the store and the bundle files.
+     *
+     * @param messageSourceReplacesBundles <code>true</code> to ignore
+     *                                     the bundle files.
+     */
+    public void setMessageSourceReplacesBundles(boolean messageSourceReplacesBundles) {
+        this.messageSourceReplacesBundles = messageSourceReplacesBundles;
+        resetMessageSource();
+    }
+
+    public long getMessageSourceRefreshInterval() {
+        return messageSourceRefreshInterval;
+    }
+
+    /**
+     * Sets how long messages fetched from the
+     * {@link #setMessageSource(MessageSource) message source} are used
+     * before they are fetched again, in the background, on their next
+     * use.
+     *
+     * @param messageSourceRefreshInterval The time in milliseconds.
+     */
+    public void setMessageSourceRefreshInterval(long messageSourceRefreshInterval) {
+        this.messageSourceRefreshInterval = messageSourceRefreshInterval;
+        resetMessageSource();
+    }
+
+    public String[] getCatalogFiles() {
+        return catalogFiles.clone();
+    }
+
+    /**
+     * Sets catalog files, as written by {@link BundleCompiler}, to serve
+     * bundles from ahead of the catalogs and bundles on the class path.
+     * The files are memory-mapped, so large catalogs do not take up
+     * heap and are shared between JVMs through the page cache.
+     *
+     * @param catalogFiles The paths of the catalog files, or
+     *                     <code>null</code> for none.
+     */
+    public void setCatalogFiles(String[] catalogFiles) {
+        this.catalogFiles = catalogFiles != null ? catalogFiles.clone() : new String[0];
+        this.catalogs = null;
+        clearAvailableLocales();
+    }
+
+    /**
+     * @return How many keys and values of loaded properties bundles were
+     *         found to equal those of other bundles, and were shared
+     *         with them.  The count covers all instances of this class
+     *         and all bundles loaded so far, including those since
+     *         dropped.
+     */
+    public long getDeduplicatedStringCount() {
+        return BundleControl.STRINGS.getDeduplicatedCount();
+    }
+
+    /**
+     * @return An estimate of the bytes taken by the keys and values of
+     *         properties bundles that were replaced by equal shared
+     *         strings.  Like {@link #getDeduplicatedStringCount()} the
+     *         count only grows, so it is not the heap saved at present
+     *         once bundles have been dropped.
+     */
+    public long getDeduplicatedBytes() {
+        return BundleControl.STRINGS.getDeduplicatedBytes();
+    }
+
+    public boolean isEmptyBundleForMissing() {
+        return emptyBundleForMissing;
+    }
+
+    /**
+     * Sets whether an empty bundle is used in place of a bundle that
+     * was not found, instead of throwing
+     * <code>MissingResourceException</code>.  Keys are then looked up
+     * in the list of default bundles only.
+     *
+     * @param emptyBundleForMissing <code>true</code> to use an empty
+     *                              bundle.
+     */
+    public void setEmptyBundleForMissing(boolean emptyBundleForMissing) {
+        this.emptyBundleForMissing = emptyBundleForMissing;
+    }
+
+    /**
+     * @return How often {@link #getLocale(String)} found the header in
+     *         its cache.
+     */
+    public long getLocaleCacheHitCount() {
+        return localesByHeader.getHitCount();
+    }
+
+    /**
+     * @return How often {@link #getLocale(String)} had to parse the
+     *         header.
+     */
+    public long getLocaleCacheMissCount() {
+        return localesByHeader.getMissCount();
+    }
+
+    public ResourceBundle getBundle() {
+        return getBundle(getDefaultBundleName(), (Locale) null);
+    }
+
+    public ResourceBundle getBundle(String bundleName) {
+        return getBundle(bundleName, (Locale) null);
+    }
+
+    /**
+     * This method returns a ResourceBundle given the bundle name and
+     * the Locale information supplied in the HTTP "Accept-Language"
+     * header.
+     *
+     * @param bundleName     Name of bundle.
+     * @param languageHeader A String with the language header.
+     * @return A localized ResourceBundle.
+     * @see #negotiateLocale(String, String)
+     */
+    public ResourceBundle getBundle(String bundleName, String languageHeader) {
+        return getBundle(bundleName, negotiateLocale(bundleName, languageHeader));
+    }
+
+    /**
+     * This method returns a ResourceBundle for the given bundle name
+     * and the given Locale.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the locale
+     *                   indicated by the default language and country).
+     * @return A localized ResourceBundle.
+     */
+    public ResourceBundle getBundle(String bundleName, Locale locale) {
+        // Assure usable inputs.
+        bundleName = (bundleName == null ? getDefaultBundleName() : bundleName.trim());
+
+        if (locale == null) {
+            locale = getLocale(null);
+        }
+
+        // Find/retrieve/cache bundle.
+        return cacheBundle(bundleName, locale, bundles, classLoader);
+    }
+
+    /**
+     * Gets a bundle from another class loader than that of this
+     * component, such as that of a Maven plugin realm.  Bundles are
+     * cached by class loader, bundle name and locale; class loaders are
+     * only weakly referenced, so that their bundles go once they are
+     * discarded.  Precompiled catalogs are only used for the class
+     * loader of this component.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the locale
+     *                   indicated by the default language and country).
+     * @param loader     The class loader (or <code>null</code> for that
+     *                   of this component).
+     * @return A localized ResourceBundle.
+     * @see I18N#getBundle(String, Locale, ClassLoader)
+     */
+    @Override
+    public ResourceBundle getBundle(String bundleName, Locale locale, ClassLoader loader) {
+        if (loader == null || loader == classLoader) {
+            return getBundle(bundleName, locale);
+        }
+        bundleName = (bundleName == null ? getDefaultBundleName() : bundleName.trim());
+
+        if (locale == null) {
+            locale = getLocale(null);
+        }
+
+        return cacheBundle(bundleName, locale, bundlesByLoader.get(loader), loader);
+    }
+
+    /**
+     * Returns a cached bundle at once, and otherwise loads it with the
+     * {@link #setLoadExecutor(Executor) load executor}.  Concurrent
+     * requests for a bundle that is being loaded share the load.
+     *
+     * @see I18N#getBundleAsync(String, Locale)
+     */
+    @Override
+    public CompletableFuture<ResourceBundle> getBundleAsync(String bundleName, Locale locale) {
+        String name = (bundleName == null ? getDefaultBundleName() : bundleName.trim());
+        Locale resolved = locale != null ? locale : getLocale(null);
+
+        I18NListener listener = this.listener;
+        ResourceBundle rb = bundles.getIfPresent(name, resolved);
+        if (rb != null) {
+            listener.bundleCacheHit(name, resolved);
+            return CompletableFuture.completedFuture(rb);
+        }
+        listener.bundleCacheMiss(name, resolved);
+
+        CompletableFuture<ResourceBundle> future =
+                bundles.getAsync(name, resolved, this::loadBundle, getLoadExecutor());
+        if (!emptyBundleForMissing) {
+            return future;
+        }
+        return future.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof MissingResourceException) {
+                return EMPTY_BUNDLE;
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    /**
+     * Looks the key up at once if the requested bundle and the list of
+     * default bundles are loaded, and otherwise once they are loaded by
+     * the {@link #setLoadExecutor(Executor) load executor}, in
+     * parallel.
+     *
+     * @see I18N#getStringAsync(String, Locale, String)
+     */
+    @Override
+    public CompletableFuture<String> getStringAsync(String bundleName, Locale locale, String key) {
+        Locale resolved = locale != null ? locale : getLocale(null);
+
+        MessageIndex index = getCachedMessageIndex(bundleName, resolved);
+        if (index != null) {
+            return CompletableFuture.completedFuture(getString(index, bundleName, resolved, key));
+        }
+
+        List<CompletableFuture<ResourceBundle>> loads = new ArrayList<>(bundleNames.length + 1);
+        loads.add(getBundleAsync(bundleName, resolved));
+        for (String name : bundleNames) {
+            if (!name.equals(bundleName)) {
+                loads.add(getBundleAsync(name, resolved));
+            }
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> getString(bundleName, resolved, key));
+    }
+
+    /**
+     * @see I18N#getLocale(String)
+     */
+    public Locale getLocale(String header) {
+        if (header != null && !header.isEmpty()) {
+            Locale locale = localesByHeader.get(header);
+            if (locale != null) {
+                listener.acceptLanguageResolved(header, true);
+                return locale;
+            }
+            ParsedAcceptLanguage parsed = ParsedAcceptLanguage.parse(header);
+            listener.acceptLanguageResolved(header, false);
+            if (!parsed.isEmpty()) {
+                locale = parsed.getLocale(0);
+                localesByHeader.put(header, locale);
+                return locale;
+            }
+        }
+
+        // Couldn't parse locale.
+        return getDefaultLocale();
+    }
+
+    /**
+     * Matches the languages of the header, by decreasing quality,
+     * against the locales the bundle is available in, as found in the
+     * precompiled catalogs or on the class path.  A language matches if
+     * the bundle has a locale other than the root locale among its
+     * candidate locales, so that <code>fr-CA</code> matches a bundle
+     * available in <code>fr</code>.  If no language matches, the
+     * locale is that of {@link #getLocale(String)}.  The result is
+     * remembered for each bundle and header.
+     *
+     * @return The locale of the bundle matched, or the locale of
+     *         {@link #getLocale(String)}.
+     * @see I18N#negotiateLocale(String, String)
+     */
+    @Override
+    public Locale negotiateLocale(String bundleName, String header) {
+        bundleName = (bundleName == null ? getDefaultBundleName() : bundleName.trim());
+        if (bundleName == null || header == null || header.isEmpty()) {
+            return getLocale(header);
+        }
+
+        BoundedCache<String, Locale> cache =
+                negotiatedLocales.computeIfAbsent(bundleName, name -> new BoundedCache<>(localeCacheSize));
+        Locale locale = cache.get(header);
+        if (locale == null) {
+            locale = negotiate(bundleName, ParsedAcceptLanguage.parse(header));
+            if (locale == null) {
+                locale = getLocale(header);
+            }
+            cache.put(header, locale);
+        }
+        return locale;
+    }
+
+    /**
+     * @return The first available locale of the bundle matching the
+     *         ranked languages, or <code>null</code> if none.
+     */
+    private Locale negotiate(String bundleName, ParsedAcceptLanguage ranked) {
+        Set<Locale> available = getAvailableLocales(bundleName);
+        if (available.isEmpty()) {
+            return null;
+        }
+        ResourceBundle.Control control = getControl();
+        for (int i = 0; i < ranked.size(); i++) {
+            Locale locale = ranked.getLocale(i);
+            if (ranked.getQuality(i) <= 0 || "*".equals(locale.getLanguage())) {
+                // Not acceptable, or any language.
+                continue;
+            }
+            for (Locale candidate : control.getCandidateLocales(bundleName, locale)) {
+                if (!candidate.equals(Locale.ROOT) && available.contains(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    public String getString(String key) {
+        return getString(key, null);
+    }
+
+    public String getString(String key, Locale locale) {
+        return getString(getDefaultBundleName(), locale, key);
+    }
+
+    /**
+     * @throws MissingResourceException Specified key cannot be matched.
+     * @see I18N#getString(String, Locale, String)
+     */
+    public String getString(String bundleName, Locale locale, String key) {
+        if (locale == null) {
+            locale = getLocale(null);
+        }
+
+        return getString(getMessageIndex(bundleName, locale), bundleName, locale, key);
+    }
+
+    /**
+     * Resolves the bundle chain once for all keys.
+     *
+     * @throws MissingResourceException Bundle not found.
+     * @see I18N#getStrings(String, Locale, String...)
+     */
+    @Override
+    public String[] getStrings(String bundleName, Locale locale, String... keys) {
+        if (locale == null) {
+            locale = getLocale(null);
+        }
+
+        MessageIndex index = getMessageIndex(bundleName, locale);
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = getString(index, bundleName, locale, keys[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Looks up <code>key</code> in the merged index of the requested
+     * bundle, or bundle by bundle if it has none.
+     */
+    private String getString(MessageIndex index, String bundleName, Locale locale, String key) {
+        if (index != NOT_INDEXED) {
+            if (bundles.isBounded()) {
+                touchBundles(bundleName, locale);
+            }
+            MessageIndex.Message message = index.get(key);
+            if (message == null) {
+                log.debug("Noticed missing resource: bundleName={}, locale={}, key={}", bundleName, locale, key);
+                listener.keyMissing(bundleName, locale, key);
+                return key;
+            }
+            if (message.getValue() != null) {
+                listener.keyFound(bundleName, locale, message.getDepth());
+                return message.getValue();
+            }
+        }
+
+        return findString(bundleName, locale, key);
+    }
+
+    /**
+     * Records a use of the bundles a message index was built from, as
+     * lookups in the index do not go through the bundle cache.
+     */
+    private void touchBundles(String bundleName, Locale locale) {
+        String name = bundleName == null ? getDefaultBundleName() : bundleName.trim();
+        bundles.touch(name, locale);
+        for (String defaultName : bundleNames) {
+            if (!defaultName.equals(name)) {
+                bundles.touch(defaultName, locale);
+            }
+        }
+    }
+
+    /**
+     * Records a use of the messages of the message source a compiled
+     * pattern may have come from, as lookups of compiled patterns do not
+     * go through the bundles, so that the messages are still fetched
+     * again when due.
+     */
+    private void refreshMessages(String bundleName, Locale locale) {
+        ResourceBundle rb = bundles.getIfPresent(bundleName, locale);
+        if (rb instanceof SourceBundle) {
+            ((SourceBundle) rb).refreshIfDue();
+        }
+        for (String defaultName : bundleNames) {
+            if (!defaultName.equals(bundleName)) {
+                rb = bundles.getIfPresent(defaultName, locale);
+                if (rb instanceof SourceBundle) {
+                    ((SourceBundle) rb).refreshIfDue();
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks for <code>key</code> in the requested bundle, then in the
+     * list of default bundles, one bundle at a time.
+     */
+    private String findString(String bundleName, Locale locale, String key) {
+        String value;
+        int depth = 0;
+
+        // Look for text in requested bundle.
+        ResourceBundle rb = getBundle(bundleName, locale);
+
+        value = getStringOrNull(rb, key);
+
+        // Look for text in list of default bundles.
+        if (value == null) {
+            for (String name : bundleNames) {
+                if (!name.equals(bundleName)) {
+                    depth++;
+                    rb = getBundle(name, locale);
+
+                    value = getStringOrNull(rb, key);
+
+                    if (value != null) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (value == null) {
+            log.debug("Noticed missing resource: bundleName={}, locale={}, key={}", bundleName, locale, key);
+            listener.keyMissing(bundleName, locale, key);
+            // Just send back the key, we don't need to throw an exception.
+            value = key;
+        } else {
+            listener.keyFound(bundleName, locale, depth);
+        }
+
+        return value;
+    }
+
+    public String format(String key, Object arg1) {
+        return format(defaultBundleName, getDefaultLocale(), key, new Object[] {arg1});
+    }
+
+    public String format(String key, Object arg1, Object arg2) {
+        return format(defaultBundleName, getDefaultLocale(), key, new Object[] {arg1, arg2});
+    }
+
+    /**
+     * @see I18N#format(String, Locale, String, Object)
+     */
+    public String format(String bundleName, Locale locale, String key, Object arg1) {
+        return format(bundleName, locale, key, new Object[] {arg1});
+    }
+
+    /**
+     * @see I18N#format(String, Locale, String, Object, Object)
+     */
+    public String format(String bundleName, Locale locale, String key, Object arg1, Object arg2) {
+        return format(bundleName, locale, key, new Object[] {arg1, arg2});
+    }
+
+    /**
+     * Looks up the value for <code>key</code> in the
+     * <code>ResourceBundle</code> referenced by
+     * <code>bundleName</code>, then formats that value for the
+     * specified <code>Locale</code> using <code>args</code>.
+     *
+     * @return Localized, formatted text identified by
+     *         <code>key</code>.
+     */
+    public String format(String bundleName, Locale locale, String key, Object[] args) {
+        if (locale == null) {
+            // When formatting Date objects and such, MessageFormat
+            // cannot have a null Locale.
+            locale = getLocale(null);
+        }
+
+        if (args == null) {
+            args = NO_ARGS;
+        }
+
+        I18NListener listener = this.listener;
+        if (listener == I18NListener.NONE) {
+            return getMessageTemplate(bundleName, locale, key).format(args);
+        }
+        long start = System.nanoTime();
+        String text = getMessageTemplate(bundleName, locale, key).format(args);
+        listener.messageFormatted(bundleName, locale, System.nanoTime() - start);
+        return text;
+    }
+
+    /**
+     * Writes literal text and plain arguments straight into
+     * <code>out</code>, and other messages without creating a
+     * <code>String</code> for them.
+     *
+     * @see I18N#formatTo(Appendable, String, Locale, String, Object...)
+     */
+    @Override
+    public void formatTo(Appendable out, String bundleName, Locale locale, String key, Object... args)
+            throws IOException {
+        if (locale == null) {
+            locale = getLocale(null);
+        }
+
+        if (args == null) {
+            args = NO_ARGS;
+        }
+
+        I18NListener listener = this.listener;
+        long start = listener != I18NListener.NONE ? System.nanoTime() : 0;
+        getMessageTemplate(bundleName, locale, key).formatTo(args, out);
+        if (listener != I18NListener.NONE) {
+            listener.messageFormatted(bundleName, locale, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Resolves the locale and the bundle chain once for all messages.
+     *
+     * @throws MissingResourceException Bundle not found.
+     * @see I18N#formatAll(String, Locale, String[], Object[][])
+     */
+    @Override
+    public String[] formatAll(String bundleName, Locale locale, String[] keys, Object[][] args) {
+        if (locale == null) {
+            locale = getLocale(null);
+        }
+
+        MessageIndex index = null;
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            MessageKey cacheKey = toMessageKey(bundleName, locale, keys[i]);
+            MessageTemplate template = messageFormats.get(cacheKey);
+            if (template == null) {
+                if (index == null) {
+                    index = getMessageIndex(bundleName, locale);
+                }
+                template = cacheMessageTemplate(cacheKey, getString(index, bundleName, locale, keys[i]));
+            } else if (messageSourceCache != null) {
+                refreshMessages(cacheKey.bundleName, locale);
+            }
+            Object[] messageArgs = args != null && i < args.length ? args[i] : null;
+            values[i] = template.format(messageArgs != null ? messageArgs : NO_ARGS);
+        }
+        return values;
+    }
+
+    /**
+     * Called the first time the Service is used.
+     */
+    public void initialize() {
+        bundles.clear();
+        bundles.setRemovalListener(this::bundleRemoved);
+        bundlesByLoader.clear();
+        messageFormats = new BoundedCache<>(messageFormatCacheSize);
+        localesByHeader = new BoundedCache<>(localeCacheSize);
+        messageIndexes = new ConcurrentHashMap<>();
+        indexKeys = new BoundedCache<>(INDEX_KEY_CACHE_SIZE);
+        indexesByBundle = new ConcurrentHashMap<>();
+        negotiatedLocales = new ConcurrentHashMap<>();
+        availableLocales = new ConcurrentHashMap<>();
+        catalogs = null;
+        initializeBundleNames();
+        if ("true".equals(System.getProperty("PLEXUS_DEV_MODE"))) {
+            devMode = true;
+        }
+        startWatcher();
+        startWarmUp();
+    }
+
+    /**
+     * Starts the warm-up if there are locales to warm up, waiting for it
+     * if blocking.
+     */
+    private void startWarmUp() {
+        if (warmUpLocales.length > 0) {
+            CompletableFuture<WarmUpReport> warmUp = warmUp();
+            if (warmUpBlocking) {
+                warmUp.join();
+            }
+        }
+    }
+
+    /**
+     * Loads the configured bundles for the configured warm-up locales,
+     * in parallel, so that the first requests for them find them
+     * cached.  Along with each bundle the list of default bundles is
+     * loaded and indexed for the same locale.
+     *
+     * @return The report, once all bundles are loaded.
+     * @see #setWarmUpLocales(String[])
+     */
+    public CompletableFuture<WarmUpReport> warmUp() {
+        long start = System.nanoTime();
+        Set<Locale> locales = getLocalesToWarmUp();
+        Map<String, Long> loadNanos = new ConcurrentHashMap<>();
+        Set<String> missing = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Math.max(1, warmUpThreads), daemonThreads("plexus-i18n-warm-up-"));
+        List<CompletableFuture<Void>> loads = new ArrayList<>();
+        for (String bundleName : bundleNames) {
+            for (Locale locale : locales) {
+                loads.add(CompletableFuture.runAsync(
+                        () -> {
+                            String name = bundleName + '_' + locale;
+                            long loadStart = System.nanoTime();
+                            try {
+                                getMessageIndex(bundleName, locale);
+                                loadNanos.put(name, System.nanoTime() - loadStart);
+                            } catch (MissingResourceException e) {
+                                missing.add(name);
+                            } catch (RuntimeException e) {
+                                log.warn("Unable to warm up bundle {}", name, e);
+                                missing.add(name);
+                            }
+                        },
+                        executor));
+            }
+        }
+        executor.shutdown();
+
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> {
+                    WarmUpReport report = new WarmUpReport(loadNanos, missing, System.nanoTime() - start);
+                    log.info("Warmed up bundles: {}", report);
+                    return report;
+                });
+    }
+
+    /**
+     * @return A factory of daemon threads named <code>prefix</code>
+     *         followed by a number.
+     */
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Resolves the configured warm-up locales, looking for the locales
+     * of the configured bundles on the class path if asked to.
+     */
+    private Set<Locale> getLocalesToWarmUp() {
+        Set<Locale> locales = new LinkedHashSet<>();
+        for (String value : warmUpLocales) {
+            value = value.trim();
+            if (ALL_LOCALES.equals(value)) {
+                for (String bundleName : bundleNames) {
+                    locales.addAll(getAvailableLocales(bundleName));
+                }
+            } else {
+                Locale locale = LocaleDiscovery.toLocale(value.replace('-', '_'));
+                if (locale != null) {
+                    locales.add(locale);
+                } else {
+                    log.warn("Ignoring invalid warm-up locale {}", value);
+                }
+            }
+        }
+        return locales;
+    }
+
+    public boolean isDevMode() {
+        return devMode;
+    }
+
+    /**
+     * Sets whether bundles are reloaded when their files change, for use
+     * during development.  Defaults to the value of the
+     * <code>PLEXUS_DEV_MODE</code> system property.
+     *
+     * @param devMode <code>true</code> to watch bundle files.
+     */
+    public void setDevMode(boolean devMode) {
+        this.devMode = devMode;
+        clearAvailableLocales();
+        if (devMode) {
+            startWatcher();
+        } else {
+            stopWatcher();
+        }
+    }
+
+    /**
+     * Registers a listener notified when bundles are reloaded in
+     * development mode (<code>PLEXUS_DEV_MODE=true</code>), or when the
+     * messages of the message source change.
+     *
+     * @param listener The listener.
+     */
+    public void addReloadListener(BundleReloadListener listener) {
+        reloadListeners.add(listener);
+    }
+
+    public void removeReloadListener(BundleReloadListener listener) {
+        reloadListeners.remove(listener);
+    }
+
+    /**
+     * Stops watching bundle files in development mode, releasing the
+     * watching thread.  Call this when discarding the component; bundles
+     * can still be looked up afterwards, but are no longer reloaded.
+     */
+    @Override
+    public void close() {
+        stopWatcher();
+    }
+
+    // ----------------------------------------------------------------------
+    // Implementation
+    // ----------------------------------------------------------------------
+
+    protected void initializeBundleNames() {
+        if (defaultBundleName != null && !defaultBundleName.isEmpty()) {
+            // Using old-style single bundle name property.
+            if (bundleNames == null || bundleNames.length <= 0) {
+                bundleNames = new String[] {defaultBundleName};
+            } else {
+                // Prepend "default" bundle name.
+                String[] array = new String[bundleNames.length + 1];
+                array[0] = defaultBundleName;
+                System.arraycopy(bundleNames, 0, array, 1, bundleNames.length);
+                bundleNames = array;
+            }
+        }
+        if (bundleNames == null) {
+            bundleNames = new String[0];
+        }
+    }
+
+    /**
+     * Returns the locales the bundle is available in, looking for them
+     * in the precompiled catalogs or else on the class path on first
+     * use.
+     *
+     * @return The locales, including <code>Locale.ROOT</code> for the
+     *         base bundle, or none if they cannot be found.
+     */
+    private Set<Locale> getAvailableLocales(String bundleName) {
+        Set<Locale> locales = availableLocales.get(bundleName);
+        if (locales == null) {
+            Catalog catalog = getCatalog(bundleName);
+            if (catalog != null) {
+                locales = new HashSet<>(catalog.getLocales(bundleName));
+            } else {
+                try {
+                    locales = new HashSet<>(
+                            LocaleDiscovery.discover(bundleName, classLoader));
+                } catch (IOException e) {
+                    log.warn("Unable to find the locales of bundle {}", bundleName, e);
+                    locales = new HashSet<>();
+                }
+            }
+            locales = Collections.unmodifiableSet(locales);
+            Set<Locale> existing = availableLocales.putIfAbsent(bundleName, locales);
+            if (existing != null) {
+                locales = existing;
+            }
+        }
+        return locales;
+    }
+
+    /**
+     * Forgets the available locales of all bundles, and the locales
+     * negotiated from them.
+     */
+    private void clearAvailableLocales() {
+        availableLocales.clear();
+        negotiatedLocales.clear();
+    }
+
+    /**
+     * Returns the merged keys of the requested bundle and the list of
+     * default bundles, building it on first use.  The index is shared by
+     * all requested locales that lead to the same bundles.  If the
+     * bundle cache is bounded, the index is only kept while all its
+     * bundles are cached, and it is dropped with them.
+     *
+     * @return The index, or {@link #NOT_INDEXED}.
+     * @throws MissingResourceException Bundle not found.
+     */
+    private MessageIndex getMessageIndex(String bundleName, Locale locale) {
+        MessageIndex index = getCachedMessageIndex(bundleName, locale);
+        if (index != null) {
+            return index;
+        }
+
+        long generation = indexGeneration.get();
+        MessageKey requestKey = toMessageKey(bundleName, locale, null);
+        List<String> names = new ArrayList<>(bundleNames.length + 1);
+        List<ResourceBundle> chain = new ArrayList<>(bundleNames.length + 1);
+        names.add(requestKey.bundleName);
+        chain.add(getBundle(bundleName, locale));
+        for (String name : bundleNames) {
+            if (!name.equals(bundleName)) {
+                names.add(name);
+                chain.add(getBundle(name, locale));
+            }
+        }
+        IndexKey indexKey = new IndexKey(requestKey.bundleName, chain);
+        index = messageIndexes.get(indexKey);
+        if (index == null) {
+            index = MessageIndex.of(chain);
+            if (index == null) {
+                index = NOT_INDEXED;
+            }
+            if (bundles.isBounded() && !isCached(names, chain)) {
+                return index;
+            }
+            MessageIndex existing = messageIndexes.putIfAbsent(indexKey, index);
+            if (existing != null) {
+                index = existing;
+            } else {
+                for (int i = 0; i < names.size(); i++) {
+                    indexesByBundle
+                            .computeIfAbsent(
+                                    new MessageKey(names.get(i), indexKey.locales[i], null),
+                                    k -> ConcurrentHashMap.newKeySet())
+                            .add(indexKey);
+                }
+                if (indexGeneration.get() != generation) {
+                    // Bundles were invalidated while the index was built.
+                    messageIndexes.remove(indexKey, index);
+                    return index;
+                }
+            }
+        }
+        indexKeys.put(requestKey, indexKey);
+        return index;
+    }
+
+    /**
+     * @return The message index of the requested bundle and locale, or
+     *         <code>null</code> if it is not built (yet).
+     */
+    private MessageIndex getCachedMessageIndex(String bundleName, Locale locale) {
+        IndexKey indexKey = indexKeys.get(toMessageKey(bundleName, locale, null));
+        return indexKey != null ? messageIndexes.get(indexKey) : null;
     }
-    // ----------------------------------------------------------------------
-    // Accessors
-    // ----------------------------------------------------------------------
 
-    public String getDefaultLanguage() {
-        return Locale.getDefault().getLanguage();
+    /**
+     * @return Whether the bundles of a chain are all in the bundle
+     *         cache, rather than not admitted to it.
+     */
+    private boolean isCached(List<String> names, List<ResourceBundle> chain) {
+        for (int i = 0; i < chain.size(); i++) {
+            ResourceBundle rb = chain.get(i);
+            if (rb != EMPTY_BUNDLE && bundles.getIfPresent(names.get(i), rb.getLocale()) != rb) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    public String getDefaultCountry() {
-        return Locale.getDefault().getCountry();
+    /**
+     * Drops the message indexes built from any locale of a bundle, and
+     * forgets which index requested locales lead to, as that may change
+     * with the bundle.
+     */
+    private void dropMessageIndexes(String bundleName) {
+        indexGeneration.incrementAndGet();
+        for (Map.Entry<MessageKey, Set<IndexKey>> e : indexesByBundle.entrySet()) {
+            if (e.getKey().bundleName.equals(bundleName) && indexesByBundle.remove(e.getKey(), e.getValue())) {
+                e.getValue().forEach(messageIndexes::remove);
+            }
+        }
+        indexKeys.clear();
     }
 
-    public String getDefaultBundleName() {
-        return defaultBundleName;
+    /**
+     * Returns the compiled pattern of the value of <code>key</code>.
+     * The pattern is only compiled the first time, when it is
+     * classified as literal text, plain arguments or a
+     * <code>MessageFormat</code>.
+     */
+    private MessageTemplate getMessageTemplate(String bundleName, Locale locale, String key) {
+        MessageKey cacheKey = toMessageKey(bundleName, locale, key);
+        MessageTemplate template = messageFormats.get(cacheKey);
+        if (template == null) {
+            template = cacheMessageTemplate(cacheKey, getString(bundleName, locale, key));
+        } else if (messageSourceCache != null) {
+            refreshMessages(cacheKey.bundleName, locale);
+        }
+        return template;
     }
 
-    public String[] getBundleNames() {
-        return bundleNames.clone();
+    /**
+     * Compiles and caches the pattern of a message.
+     */
+    private MessageTemplate cacheMessageTemplate(MessageKey cacheKey, String pattern) {
+        MessageTemplate template = MessageTemplate.compile(pattern, cacheKey.locale);
+        messageFormats.put(cacheKey, template);
+        return template;
     }
 
-    public ResourceBundle getBundle() {
-        return getBundle(getDefaultBundleName(), (Locale) null);
+    private MessageKey toMessageKey(String bundleName, Locale locale, String key) {
+        return new MessageKey(bundleName == null ? getDefaultBundleName() : bundleName.trim(), locale, key);
     }
 
-    public ResourceBundle getBundle(String bundleName) {
-        return getBundle(bundleName, (Locale) null);
+    /**
+     * Caches the named bundle for fast lookups.  Concurrent requests
+     * for a bundle that is not cached yet wait for a single load.
+     *
+     * @throws MissingResourceException Bundle not found.
+     */
+    private ResourceBundle cacheBundle(String bundleName, Locale locale, BundleCache cache, ClassLoader loader)
+            throws MissingResourceException {
+        try {
+            I18NListener listener = this.listener;
+            if (listener != I18NListener.NONE) {
+                ResourceBundle rb = cache.getIfPresent(bundleName, locale);
+                if (rb != null) {
+                    listener.bundleCacheHit(bundleName, locale);
+                    return rb;
+                }
+                listener.bundleCacheMiss(bundleName, locale);
+            }
+            if (cache == bundles) {
+                return cache.get(bundleName, locale, this::loadBundle);
+            }
+            return cache.get(bundleName, locale, (name, l) -> loadBundle(name, l, cache, loader));
+        } catch (MissingResourceException e) {
+            if (emptyBundleForMissing) {
+                return EMPTY_BUNDLE;
+            }
+            throw e;
+        }
     }
 
     /**
-     * This method returns a ResourceBundle given the bundle name and
-     * the Locale information supplied in the HTTP "Accept-Language"
-     * header.
+     * Loads the named bundle from the class loader of this component.
      *
-     * @param bundleName     Name of bundle.
-     * @param languageHeader A String with the language header.
-     * @return A localized ResourceBundle.
+     * @throws MissingResourceException Bundle not found.
      */
-    public ResourceBundle getBundle(String bundleName, String languageHeader) {
-        return getBundle(bundleName, getLocale(languageHeader));
+    private ResourceBundle loadBundle(String bundleName, Locale locale) throws MissingResourceException {
+        return loadBundle(bundleName, locale, bundles, classLoader);
     }
 
     /**
-     * This method returns a ResourceBundle for the given bundle name
-     * and the given Locale.
+     * Loads the named bundle, called once per bundle name and locale by
+     * {@link #cacheBundle(String, Locale, BundleCache, ClassLoader)}.
      *
-     * @param bundleName Name of bundle (or <code>null</code> for the
-     *                   default bundle).
-     * @param locale     The locale (or <code>null</code> for the locale
-     *                   indicated by the default language and country).
-     * @return A localized ResourceBundle.
+     * @param cache  The cache of <code>loader</code>, in which to look
+     *               for fallback bundles.
+     * @param loader The class loader to load the bundle from.
+     * @throws MissingResourceException Bundle not found.
      */
-    public ResourceBundle getBundle(String bundleName, Locale locale) {
-        // Assure usable inputs.
-        bundleName = (bundleName == null ? getDefaultBundleName() : bundleName.trim());
-
-        // ----------------------------------------------------------------------
-        // A hack to make sure the properties files are always checked
-        // ----------------------------------------------------------------------
-
-        if (devMode) {
-            ResourceBundle.clearCache();
+    private ResourceBundle loadBundle(String bundleName, Locale locale, BundleCache cache, ClassLoader loader)
+            throws MissingResourceException {
+        BundleWatcher watcher = this.watcher;
+        if (watcher != null) {
+            watcher.watch(bundleName, loader);
         }
-
-        if (locale == null) {
-            locale = getLocale(null);
+        long start = System.nanoTime();
+        boolean found = false;
+        try {
+            ResourceBundle rb = findBundle(bundleName, locale, cache, loader);
+            found = true;
+            return rb;
+        } finally {
+            listener.bundleLoaded(bundleName, locale, found, System.nanoTime() - start);
         }
+    }
 
-        // Find/retrieve/cache bundle.
-        ResourceBundle rb;
-
-        Map<Locale, ResourceBundle> bundlesByLocale = bundles.get(bundleName);
-
-        if (bundlesByLocale != null) {
-            // Cache of bundles by locale for the named bundle exists.
-            // Check the cache for a bundle corresponding to locale.
-            rb = bundlesByLocale.get(locale);
+    private ResourceBundle findBundle(String bundleName, Locale locale, BundleCache cache, ClassLoader loader)
+            throws MissingResourceException {
+        try {
+            return getBundleFromSource(bundleName, locale, loader);
+        } catch (MissingResourceException e) {
+            ResourceBundle rb = findBundleByLocale(bundleName, locale, cache, loader);
             if (rb == null) {
-                // Not yet cached.
-                rb = cacheBundle(bundleName, locale);
+                throw e;
             }
-        } else {
-            rb = cacheBundle(bundleName, locale);
+            return rb;
         }
-
-        return rb;
     }
 
-    /**
-     * @see I18N#getLocale(String)
-     */
-    public Locale getLocale(String header) {
-        if (header != null && !header.isEmpty()) {
-            I18NTokenizer tok = new I18NTokenizer(header);
-            if (tok.hasNext()) {
-                return tok.next();
+    private synchronized void startWatcher() {
+        if (devMode && watcher == null) {
+            try {
+                watcher = new BundleWatcher(this::reloadBundles, RELOAD_DELAY);
+            } catch (IOException e) {
+                log.warn("Unable to watch bundle files, changes will not be picked up", e);
             }
         }
-
-        // Couldn't parse locale.
-        return Locale.getDefault();
-    }
-
-    public String getString(String key) {
-        return getString(key, null);
     }
 
-    public String getString(String key, Locale locale) {
-        return getString(getDefaultBundleName(), locale, key);
+    private synchronized void stopWatcher() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                log.warn("Unable to stop watching bundle files", e);
+            }
+            watcher = null;
+        }
     }
 
     /**
-     * @throws MissingResourceException Specified key cannot be matched.
-     * @see I18N#getString(String, Locale, String)
+     * Drops the cached bundles that use the changed files, along with
+     * everything derived from them.  In development mode bundles are
+     * not cached by <code>ResourceBundle</code>, so they are read from
+     * their files again on their next use.
      */
-    public String getString(String bundleName, Locale locale, String key) {
-        String value;
-        if (locale == null) {
-            locale = getLocale(null);
-        }
-
-        // Look for text in requested bundle.
-        ResourceBundle rb = getBundle(bundleName, locale);
-
-        value = getStringOrNull(rb, key);
-
-        // Look for text in list of default bundles.
-        if (value == null) {
-            for (String name : bundleNames) {
-                if (!name.equals(bundleName)) {
-                    rb = getBundle(name, locale);
-
-                    value = getStringOrNull(rb, key);
-
-                    if (value != null) {
-                        locale = rb.getLocale();
-
-                        break;
+    private void reloadBundles(Map<String, Set<Locale>> changes) {
+        for (Map.Entry<String, Set<Locale>> change : changes.entrySet()) {
+            String bundleName = change.getKey();
+            Set<Locale> fileLocales = change.getValue();
+            Predicate<Locale> affected = locale -> {
+                for (Locale fileLocale : fileLocales) {
+                    if (BundleControl.NON_CACHING.isCandidate(bundleName, locale, fileLocale)) {
+                        return true;
                     }
                 }
-            }
-        }
+                return false;
+            };
 
-        if (value == null) {
-            log.debug("Noticed missing resource: bundleName={}, locale={}, key={}", bundleName, locale, key);
-            // Just send back the key, we don't need to throw an exception.
-            value = key;
-        }
+            Set<Locale> locales = bundles.invalidate(bundleName, affected);
+            bundlesByLoader.forEach(cache -> locales.addAll(cache.invalidate(bundleName, affected)));
+            dropMessageIndexes(bundleName);
+            availableLocales.remove(bundleName);
+            negotiatedLocales.remove(bundleName);
+            messageFormats.clear();
 
-        return value;
+            log.info("Reloading bundle {} for locales {}", bundleName, locales);
+            for (BundleReloadListener listener : reloadListeners) {
+                listener.bundleReloaded(bundleName, locales);
+            }
+        }
     }
 
-    public String format(String key, Object arg1) {
-        return format(defaultBundleName, Locale.getDefault(), key, new Object[] {arg1});
+    /**
+     * Drops what was derived from the messages of the message source
+     * that changed.  The cached bundles already see the new messages;
+     * they are dropped nonetheless, as a bundle the store had no
+     * messages for may have been found missing.
+     */
+    private void messagesChanged(String bundleName, Locale sourceLocale) {
+        Predicate<Locale> affected = locale -> BundleControl.CACHING.isCandidate(bundleName, locale, sourceLocale);
+        Set<Locale> locales = bundles.invalidate(bundleName, affected);
+        dropMessageIndexes(bundleName);
+        messageFormats.clear();
+
+        log.debug("Messages of bundle {} changed for locale {}", bundleName, sourceLocale);
+        for (BundleReloadListener listener : reloadListeners) {
+            listener.bundleReloaded(bundleName, locales);
+        }
     }
 
-    public String format(String key, Object arg1, Object arg2) {
-        return format(defaultBundleName, Locale.getDefault(), key, new Object[] {arg1, arg2});
+    /**
+     * Starts over with the messages of the message source, dropping the
+     * bundles built from the previous one.
+     */
+    private void resetMessageSource() {
+        messageSourceCache = messageSource != null
+                ? new MessageSourceCache(
+                        messageSource, messageSourceRefreshInterval, this::getLoadExecutor, this::messagesChanged)
+                : null;
+        indexGeneration.incrementAndGet();
+        bundles.clear();
+        messageIndexes.clear();
+        indexKeys.clear();
+        indexesByBundle.clear();
+        messageFormats.clear();
     }
 
     /**
-     * @see I18N#format(String, Locale, String, Object)
+     * Drops what was derived from a bundle that was evicted from the
+     * bundle cache, or expired: the message indexes built from it, and
+     * once no locale of the bundle is cached, the locales negotiated
+     * for it.
      */
-    public String format(String bundleName, Locale locale, String key, Object arg1) {
-        return format(bundleName, locale, key, new Object[] {arg1});
+    private void bundleRemoved(String bundleName, Locale locale, boolean expired) {
+        indexGeneration.incrementAndGet();
+        Set<IndexKey> built = indexesByBundle.remove(new MessageKey(bundleName, locale, null));
+        if (built != null) {
+            built.forEach(messageIndexes::remove);
+        }
+        if (!bundles.contains(bundleName)) {
+            availableLocales.remove(bundleName);
+            negotiatedLocales.remove(bundleName);
+        }
+        listener.bundleEvicted(bundleName, locale, expired);
     }
 
     /**
-     * @see I18N#format(String, Locale, String, Object, Object)
+     * Configures the bundle cache of another class loader as that of
+     * this component.
      */
-    public String format(String bundleName, Locale locale, String key, Object arg1, Object arg2) {
-        return format(bundleName, locale, key, new Object[] {arg1, arg2});
+    private void configureBundleCache(BundleCache cache) {
+        cache.setMissingBundleTtl(bundles.getMissingBundleTtl());
+        cache.setMaxEntries(bundles.getMaxEntries());
+        cache.setMaxBytes(bundles.getMaxBytes());
+        cache.setExpireAfterAccess(bundles.getExpireAfterAccess());
+        cache.setRemovalListener((bundleName, locale, expired) -> listener.bundleEvicted(bundleName, locale, expired));
     }
 
     /**
-     * Looks up the value for <code>key</code> in the
-     * <code>ResourceBundle</code> referenced by
-     * <code>bundleName</code>, then formats that value for the
-     * specified <code>Locale</code> using <code>args</code>.
+     * Gets the bundle from the message source, if there is one, falling
+     * back to the bundle files unless the message source replaces them.
      *
-     * @return Localized, formatted text identified by
-     *         <code>key</code>.
+     * @throws MissingResourceException Bundle not found.
      */
-    public String format(String bundleName, Locale locale, String key, Object[] args) {
-        if (locale == null) {
-            // When formatting Date objects and such, MessageFormat
-            // cannot have a null Locale.
-            locale = getLocale(null);
+    private ResourceBundle getBundleFromSource(String bundleName, Locale locale, ClassLoader loader)
+            throws MissingResourceException {
+        MessageSourceCache sourceCache = loader == classLoader ? messageSourceCache : null;
+        if (sourceCache == null) {
+            return getBundleFromFiles(bundleName, locale, loader);
         }
-
-        String value = getString(bundleName, locale, key);
-        if (args == null) {
-            args = NO_ARGS;
+        ResourceBundle files = null;
+        MissingResourceException missing = null;
+        if (!messageSourceReplacesBundles) {
+            try {
+                files = getBundleFromFiles(bundleName, locale, loader);
+            } catch (MissingResourceException e) {
+                missing = e;
+            }
+        }
+        ResourceBundle rb = sourceCache.getBundle(bundleName, locale, files);
+        if (rb == null) {
+            throw missing != null
+                    ? missing
+                    : new MissingResourceException(
+                            "Can't find bundle for base name " + bundleName + ", locale " + locale,
+                            bundleName + '_' + locale,
+                            "");
         }
-        return new MessageFormat(value, locale).format(args);
+        return rb;
     }
 
     /**
-     * Called the first time the Service is used.
+     * Gets the bundle from a precompiled catalog if one has it, or else
+     * using <code>ResourceBundle.getBundle</code>.  Catalogs are ignored
+     * in development mode, as they do not change with the bundle files,
+     * and for other class loaders than that of this component, as they
+     * were compiled from its bundles.
+     *
+     * @throws MissingResourceException Bundle not found.
      */
-    public void initialize() {
-        bundles = new HashMap<>();
-        initializeBundleNames();
-        if ("true".equals(System.getProperty("PLEXUS_DEV_MODE"))) {
-            devMode = true;
+    private ResourceBundle getBundleFromFiles(String bundleName, Locale locale, ClassLoader loader)
+            throws MissingResourceException {
+        Catalog catalog = loader == classLoader ? getCatalog(bundleName) : null;
+        if (catalog != null) {
+            return catalog.getBundle(bundleName, locale, getControl());
         }
+        return ResourceBundle.getBundle(bundleName, locale, loader, getControl());
     }
 
-    // ----------------------------------------------------------------------
-    // Implementation
-    // ----------------------------------------------------------------------
+    /**
+     * @return The first catalog having the named bundle, or
+     *         <code>null</code> if none.
+     */
+    private Catalog getCatalog(String bundleName) {
+        if (devMode) {
+            return null;
+        }
+        List<Catalog> catalogs = this.catalogs;
+        if (catalogs == null) {
+            catalogs = loadCatalogs();
+            this.catalogs = catalogs;
+        }
+        for (Catalog catalog : catalogs) {
+            if (catalog.contains(bundleName)) {
+                return catalog;
+            }
+        }
+        return null;
+    }
 
-    protected void initializeBundleNames() {
-        if (defaultBundleName != null && !defaultBundleName.isEmpty()) {
-            // Using old-style single bundle name property.
-            if (bundleNames == null || bundleNames.length <= 0) {
-                bundleNames = new String[] {defaultBundleName};
-            } else {
-                // Prepend "default" bundle name.
-                String[] array = new String[bundleNames.length + 1];
-                array[0] = defaultBundleName;
-                System.arraycopy(bundleNames, 0, array, 1, bundleNames.length);
-                bundleNames = array;
+    private List<Catalog> loadCatalogs() {
+        List<Catalog> catalogs = new ArrayList<>();
+        for (String file : catalogFiles) {
+            try {
+                catalogs.add(Catalog.map(Paths.get(file)));
+                log.debug("Mapped message catalog {}", file);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Ignoring message catalog {}", file, e);
             }
         }
-        if (bundleNames == null) {
-            bundleNames = new String[0];
+        try {
+            Enumeration<URL> urls = classLoader.getResources(Catalog.RESOURCE);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                try {
+                    catalogs.add(Catalog.load(url));
+                    log.debug("Loaded message catalog {}", url);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Ignoring message catalog {}", url, e);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Unable to look for message catalogs", e);
         }
+        return catalogs;
     }
 
     /**
-     * Caches the named bundle for fast lookups.  This operation is
-     * relatively expesive in terms of memory use, but is optimized
-     * for run-time speed in the usual case.
-     *
-     * @throws MissingResourceException Bundle not found.
+     * @return The number of message indexes built.
      */
-    private synchronized ResourceBundle cacheBundle(String bundleName, Locale locale) throws MissingResourceException {
-        Map<Locale, ResourceBundle> bundlesByLocale = bundles.get(bundleName);
-
-        ResourceBundle rb = (bundlesByLocale == null ? null : bundlesByLocale.get(locale));
-        if (rb == null) {
-            bundlesByLocale = (bundlesByLocale == null ? new HashMap<>(3) : new HashMap<>(bundlesByLocale));
-            try {
-                rb = ResourceBundle.getBundle(
-                        bundleName,
-                        locale,
-                        ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_DEFAULT));
-            } catch (MissingResourceException e) {
-                rb = findBundleByLocale(bundleName, locale, bundlesByLocale);
-                if (rb == null) {
-                    throw (MissingResourceException) e.fillInStackTrace();
-                }
-            }
+    int getMessageIndexCount() {
+        return messageIndexes.size();
+    }
 
-            if (rb != null) {
-                // Cache bundle.
-                bundlesByLocale.put(rb.getLocale(), rb);
-                Map<String, Map<Locale, ResourceBundle>> bundlesByName = new HashMap<>(bundles);
-                bundlesByName.put(bundleName, bundlesByLocale);
-                this.bundles = bundlesByName;
-            }
-        }
+    /**
+     * Uses the given catalogs instead of those on the class path.
+     */
+    void setCatalogs(List<Catalog> catalogs) {
+        this.catalogs = new ArrayList<>(catalogs);
+    }
 
-        return rb;
+    /**
+     * @return The control used to load bundles.
+     */
+    private ResourceBundle.Control getControl() {
+        return devMode ? BundleControl.NON_CACHING : BundleControl.CACHING;
     }
 
     /**
@@ -336,31 +1818,30 @@ public class DefaultI18N implements I18N {
      * <p>Since we're really just guessing at possible bundles to use,
      * we don't ever throw <code>MissingResourceException</code>.</p>
      */
-    private ResourceBundle findBundleByLocale(
-            String bundleName, Locale locale, Map<Locale, ResourceBundle> bundlesByLocale) {
+    private ResourceBundle findBundleByLocale(String bundleName, Locale locale, BundleCache cache, ClassLoader loader) {
         ResourceBundle rb = null;
+        Locale defaultLocale = getDefaultLocale();
 
         if (locale.getCountry() != null
                 && !locale.getCountry().isEmpty()
-                && Locale.getDefault().getLanguage().equals(locale.getLanguage())) {
-            Locale withDefaultCountry =
-                    new Locale(locale.getLanguage(), Locale.getDefault().getCountry());
-            rb = bundlesByLocale.get(withDefaultCountry);
+                && defaultLocale.getLanguage().equals(locale.getLanguage())) {
+            Locale withDefaultCountry = LocaleRegistry.of(locale.getLanguage(), defaultLocale.getCountry());
+            rb = cache.getIfPresent(bundleName, withDefaultCountry);
             if (rb == null) {
-                rb = getBundleIgnoreException(bundleName, withDefaultCountry);
+                rb = getBundleIgnoreException(bundleName, withDefaultCountry, loader);
             }
         } else if (locale.getLanguage() != null
                 && !locale.getLanguage().isEmpty()
-                && Locale.getDefault().getCountry().equals(locale.getCountry())) {
-            Locale withDefaultLanguage = new Locale(Locale.getDefault().getLanguage(), locale.getCountry());
-            rb = bundlesByLocale.get(withDefaultLanguage);
+                && defaultLocale.getCountry().equals(locale.getCountry())) {
+            Locale withDefaultLanguage = LocaleRegistry.of(defaultLocale.getLanguage(), locale.getCountry());
+            rb = cache.getIfPresent(bundleName, withDefaultLanguage);
             if (rb == null) {
-                rb = getBundleIgnoreException(bundleName, withDefaultLanguage);
+                rb = getBundleIgnoreException(bundleName, withDefaultLanguage, loader);
             }
         }
 
-        if (rb == null && !Locale.getDefault().equals(locale)) {
-            rb = getBundleIgnoreException(bundleName, Locale.getDefault());
+        if (rb == null && !defaultLocale.equals(locale)) {
+            rb = getBundleIgnoreException(bundleName, defaultLocale, loader);
         }
 
         return rb;
@@ -372,12 +1853,9 @@ public class DefaultI18N implements I18N {
      * returning <code>null</code> instead of throwing
      * <code>MissingResourceException</code>.
      */
-    private ResourceBundle getBundleIgnoreException(String bundleName, Locale locale) {
+    private ResourceBundle getBundleIgnoreException(String bundleName, Locale locale, ClassLoader loader) {
         try {
-            return ResourceBundle.getBundle(
-                    bundleName,
-                    locale,
-                    ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_DEFAULT));
+            return getBundleFromSource(bundleName, locale, loader);
         } catch (MissingResourceException ignored) {
             return null;
         }
@@ -387,9 +1865,27 @@ public class DefaultI18N implements I18N {
      * Gets localized text from a bundle if it's there.  Otherwise,
      * returns <code>null</code> (ignoring a possible
      * <code>MissingResourceException</code>).
+     * <p>
+     * Bundles of the standard <code>ListResourceBundle</code> and
+     * <code>PropertyResourceBundle</code> kinds that list all the keys
+     * they answer, and lazily loaded properties bundles, are asked
+     * whether they contain the key, which is a hash lookup, and bundles
+     * of precompiled catalogs and of the message source are searched
+     * directly, so that a miss does not cost an exception.  Other
+     * bundles, including subclasses that look keys up on their own, are
+     * still probed with <code>getString</code>.
      */
     protected final String getStringOrNull(ResourceBundle rb, String key) {
         if (rb != null) {
+            if (rb instanceof CatalogBundle) {
+                return ((CatalogBundle) rb).find(key);
+            }
+            if (rb instanceof SourceBundle) {
+                return ((SourceBundle) rb).find(key);
+            }
+            if (BundleControl.listsAllKeys(rb) || rb instanceof LazyPropertiesBundle) {
+                return rb.containsKey(key) ? rb.getString(key) : null;
+            }
             try {
                 return rb.getString(key);
             } catch (MissingResourceException ignored) {
@@ -398,4 +1894,91 @@ public class DefaultI18N implements I18N {
         }
         return null;
     }
+
+    /**
+     * Holds the default load executor, created on first use.
+     */
+    private static final class DefaultLoadExecutor {
+        static final Executor INSTANCE = Executors.newCachedThreadPool(daemonThreads("plexus-i18n-loader-"));
+    }
+
+    /**
+     * Identifies a message index by the requested bundle name and the
+     * locales of the bundles it was built from.
+     */
+    private static final class IndexKey {
+        private final String bundleName;
+
+        private final Locale[] locales;
+
+        private final int hash;
+
+        IndexKey(String bundleName, List<ResourceBundle> chain) {
+            this.bundleName = bundleName;
+            this.locales = new Locale[chain.size()];
+            for (int i = 0; i < locales.length; i++) {
+                Locale locale = chain.get(i).getLocale();
+                // The empty bundle standing in for a missing one has none.
+                locales[i] = locale != null ? locale : Locale.ROOT;
+            }
+            this.hash = 31 * bundleName.hashCode() + Arrays.hashCode(locales);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IndexKey)) {
+                return false;
+            }
+            IndexKey other = (IndexKey) o;
+            return bundleName.equals(other.bundleName) && Arrays.equals(locales, other.locales);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Identifies a message by bundle name, locale and key, or a bundle
+     * when the key is <code>null</code>.
+     */
+    private static final class MessageKey {
+        private final String bundleName;
+
+        private final Locale locale;
+
+        private final String key;
+
+        private final int hash;
+
+        MessageKey(String bundleName, Locale locale, String key) {
+            this.bundleName = bundleName;
+            this.locale = locale;
+            this.key = key;
+            this.hash = Objects.hash(bundleName, locale, key);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MessageKey)) {
+                return false;
+            }
+            MessageKey other = (MessageKey) o;
+            return Objects.equals(bundleName, other.bundleName)
+                    && locale.equals(other.locale)
+                    && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
 }
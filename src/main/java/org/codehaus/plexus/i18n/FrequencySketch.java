@@ -0,0 +1,147 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Estimates how often items were used recently, in little memory: a
+ * count-min sketch of 4-bit counters, four per item, each item
+ * counting as its lowest counter.  Once the counters were incremented
+ * ten times as often as there are words in the table, all counters are
+ * halved, so that the estimates follow changes in popularity.  This is
+ * the frequency filter of TinyLFU.  Counters are updated atomically,
+ * so the sketch can be shared between threads.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final int MAX_COUNT = 15;
+
+    private static final int MAX_TABLE_LENGTH = 1 << 24;
+
+    /**
+     * Sixteen 4-bit counters per word.
+     */
+    private final AtomicLongArray table;
+
+    private final int mask;
+
+    /**
+     * How many increments there are between halvings.
+     */
+    private final int sampleSize;
+
+    private final AtomicInteger increments = new AtomicInteger();
+
+    /**
+     * @param expectedItems How many items the sketch tells apart well.
+     */
+    FrequencySketch(int expectedItems) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(expectedItems, MAX_TABLE_LENGTH)) * 2 - 1);
+        this.table = new AtomicLongArray(length);
+        this.mask = length - 1;
+        this.sampleSize = 10 * length;
+    }
+
+    /**
+     * @param hash The hash code of the item.
+     * @return How often the item was used, from <code>0</code> to
+     *         <code>15</code>.
+     */
+    int frequency(int hash) {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < 4; i++) {
+            long word = table.get(indexOf(spread, i));
+            frequency = Math.min(frequency, (int) (word >>> ((start + i) << 2)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    /**
+     * Counts one use of an item.
+     *
+     * @param hash The hash code of the item.
+     */
+    void increment(int hash) {
+        int spread = spread(hash);
+        int start = (spread & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(spread, i), start + i);
+        }
+        if (added && increments.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Increments a counter unless it is at its maximum.
+     *
+     * @return Whether the counter was incremented.
+     */
+    private boolean incrementAt(int index, int counter) {
+        int shift = counter << 2;
+        while (true) {
+            long word = table.get(index);
+            if (((word >>> shift) & MAX_COUNT) == MAX_COUNT) {
+                return false;
+            }
+            if (table.compareAndSet(index, word, word + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Halves all counters, in the thread that reached the sample size.
+     */
+    private void reset() {
+        if (increments.getAndSet(0) < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            long word;
+            do {
+                word = table.get(i);
+            } while (!table.compareAndSet(i, word, (word >>> 1) & RESET_MASK));
+        }
+    }
+
+    private int indexOf(int spread, int i) {
+        long hash = (spread + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return (int) hash & mask;
+    }
+
+    /**
+     * Mixes the bits of a hash code, as hash codes of strings and
+     * locales are poorly distributed in their low bits.
+     */
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
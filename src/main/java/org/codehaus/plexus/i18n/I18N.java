@@ -16,8 +16,10 @@ package org.codehaus.plexus.i18n;
  * limitations under the License.
  */
 
+import java.io.IOException;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 public interface I18N {
     public static String ROLE = I18N.class.getName();
@@ -40,14 +42,99 @@ public interface I18N {
 
     ResourceBundle getBundle(String bundleName, Locale locale);
 
+    /**
+     * Gets a bundle from the given class loader, such as that of a Maven
+     * plugin realm.  The default implementation uses
+     * <code>ResourceBundle.getBundle</code>.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @param loader     The class loader (or <code>null</code> for that
+     *                   of the implementation).
+     * @return The bundle.
+     * @throws java.util.MissingResourceException Bundle not found.
+     * @see #getBundle(String, Locale)
+     */
+    default ResourceBundle getBundle(String bundleName, Locale locale, ClassLoader loader) {
+        if (loader == null) {
+            return getBundle(bundleName, locale);
+        }
+        return ResourceBundle.getBundle(
+                bundleName != null ? bundleName : getDefaultBundleName(),
+                locale != null ? locale : getLocale(null),
+                loader);
+    }
+
     Locale getLocale(String languageHeader);
 
+    /**
+     * Gets a bundle without waiting for it to be loaded.  The default
+     * implementation gets the bundle on the calling thread.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @return The bundle, or the <code>MissingResourceException</code>
+     *         if it is not found.
+     * @see #getBundle(String, Locale)
+     */
+    default CompletableFuture<ResourceBundle> getBundleAsync(String bundleName, Locale locale) {
+        CompletableFuture<ResourceBundle> future = new CompletableFuture<>();
+        try {
+            future.complete(getBundle(bundleName, locale));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Chooses the locale of a bundle that best matches the
+     * <code>Accept-Language</code> header, trying each language of the
+     * header in turn.
+     *
+     * @param bundleName     Name of bundle (or <code>null</code> for the
+     *                       default bundle).
+     * @param languageHeader The <code>Accept-Language</code> header.
+     * @return The locale to get the bundle for.
+     * @see #getLocale(String)
+     */
+    default Locale negotiateLocale(String bundleName, String languageHeader) {
+        return getLocale(languageHeader);
+    }
+
     String getString(String key);
 
     String getString(String key, Locale locale);
 
     String getString(String bundleName, Locale locale, String key);
 
+    /**
+     * Looks up a key without waiting for bundles to be loaded.  The
+     * default implementation looks the key up on the calling thread.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @param key        The key.
+     * @return The text, or the <code>MissingResourceException</code>
+     *         if the bundle is not found.
+     * @see #getString(String, Locale, String)
+     */
+    default CompletableFuture<String> getStringAsync(String bundleName, Locale locale, String key) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            future.complete(getString(bundleName, locale, key));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
     String format(String key, Object arg1);
 
     String format(String key, Object arg1, Object arg2);
@@ -57,4 +144,87 @@ public interface I18N {
     String format(String bundleName, Locale locale, String key, Object arg1, Object arg2);
 
     String format(String bundleName, Locale locale, String key, Object[] args);
+
+    /**
+     * Appends the text of a key to <code>out</code>, rather than
+     * returning it.
+     *
+     * @param out        Where to write the text, such as a
+     *                   <code>StringBuilder</code> or a
+     *                   <code>Writer</code>.
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @param key        The key.
+     * @throws IOException Writing to <code>out</code> failed.
+     * @see #getString(String, Locale, String)
+     */
+    default void getStringTo(Appendable out, String bundleName, Locale locale, String key) throws IOException {
+        out.append(getString(bundleName, locale, key));
+    }
+
+    /**
+     * Appends a formatted message to <code>out</code>, rather than
+     * returning it.
+     *
+     * @param out        Where to write the text, such as a
+     *                   <code>StringBuilder</code> or a
+     *                   <code>Writer</code>.
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @param key        The key of the message.
+     * @param args       The arguments of the message.
+     * @throws IOException Writing to <code>out</code> failed.
+     * @see #format(String, Locale, String, Object[])
+     */
+    default void formatTo(Appendable out, String bundleName, Locale locale, String key, Object... args)
+            throws IOException {
+        out.append(format(bundleName, locale, key, args));
+    }
+
+    /**
+     * Looks up several keys of one bundle at once.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @param keys       The keys to look up.
+     * @return The text of each key, in the order of <code>keys</code>.
+     * @see #getString(String, Locale, String)
+     */
+    default String[] getStrings(String bundleName, Locale locale, String... keys) {
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = getString(bundleName, locale, keys[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Formats several messages of one bundle at once.
+     *
+     * @param bundleName Name of bundle (or <code>null</code> for the
+     *                   default bundle).
+     * @param locale     The locale (or <code>null</code> for the default
+     *                   locale).
+     * @param keys       The keys of the messages.
+     * @param args       The arguments of each message, in the order of
+     *                   <code>keys</code>; <code>null</code> or shorter
+     *                   than <code>keys</code> for messages without
+     *                   arguments.
+     * @return The formatted text of each message, in the order of
+     *         <code>keys</code>.
+     * @see #format(String, Locale, String, Object[])
+     */
+    default String[] formatAll(String bundleName, Locale locale, String[] keys, Object[][] args) {
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = format(bundleName, locale, keys[i], args != null && i < args.length ? args[i] : null);
+        }
+        return values;
+    }
 }
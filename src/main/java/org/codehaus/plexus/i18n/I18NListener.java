@@ -0,0 +1,91 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Locale;
+
+/**
+ * Receives events from {@link DefaultI18N} for monitoring.  All methods
+ * do nothing by default, so implementations override only what they
+ * need.  They are called on the request path and must be fast and
+ * thread-safe; {@link I18NStatistics} is a ready-made implementation
+ * that counts events.
+ *
+ * @see DefaultI18N#setListener(I18NListener)
+ */
+public interface I18NListener {
+    /**
+     * A listener that ignores all events.
+     */
+    I18NListener NONE = new I18NListener() {};
+
+    /**
+     * A bundle was found in the cache.
+     */
+    default void bundleCacheHit(String bundleName, Locale locale) {}
+
+    /**
+     * A bundle was not found in the cache and is about to be loaded.
+     */
+    default void bundleCacheMiss(String bundleName, Locale locale) {}
+
+    /**
+     * A bundle was loaded.
+     *
+     * @param found       Whether the bundle was found.
+     * @param nanoseconds How long the load took.
+     */
+    default void bundleLoaded(String bundleName, Locale locale, boolean found, long nanoseconds) {}
+
+    /**
+     * A bundle was dropped from the bounded bundle cache.
+     *
+     * @param expired <code>true</code> if the bundle was not requested
+     *                for the idle time, <code>false</code> if it was
+     *                evicted to make room for another.
+     * @see DefaultI18N#setBundleCacheMaxEntries(int)
+     */
+    default void bundleEvicted(String bundleName, Locale locale, boolean expired) {}
+
+    /**
+     * A key was found.
+     *
+     * @param depth The position of the bundle that had the key:
+     *              <code>0</code> for the requested bundle, <code>1</code>
+     *              for the first other bundle of the list of default
+     *              bundles, and so on.
+     */
+    default void keyFound(String bundleName, Locale locale, int depth) {}
+
+    /**
+     * A key was found in none of the bundles.
+     */
+    default void keyMissing(String bundleName, Locale locale, String key) {}
+
+    /**
+     * A message was formatted.
+     *
+     * @param nanoseconds How long the lookup and formatting took.
+     */
+    default void messageFormatted(String bundleName, Locale locale, long nanoseconds) {}
+
+    /**
+     * An <code>Accept-Language</code> header was resolved to a locale.
+     *
+     * @param cached Whether the result was cached, or the header parsed.
+     */
+    default void acceptLanguageResolved(String header, boolean cached) {}
+}
@@ -0,0 +1,267 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the events of a {@link DefaultI18N}.  Counters are
+ * <code>LongAdder</code>s, so updating them from many threads is cheap.
+ * <pre>
+ * I18NStatistics statistics = new I18NStatistics();
+ * i18n.setListener(statistics);
+ * </pre>
+ */
+public class I18NStatistics implements I18NListener {
+    /**
+     * Fallback depths from this one up are counted together.
+     */
+    public static final int MAX_DEPTH = 8;
+
+    /**
+     * The number of bundle names and locales whose missing keys are
+     * counted separately.  As locales may come from
+     * <code>Accept-Language</code> headers, missing keys of further
+     * bundle names and locales are counted together, under
+     * {@link #OTHER_MISSING_KEYS}.
+     */
+    public static final int MAX_MISSING_KEY_BUNDLES = 256;
+
+    /**
+     * The name under which {@link #getMissingKeys()} counts the missing
+     * keys beyond {@link #MAX_MISSING_KEY_BUNDLES} bundle names and
+     * locales.
+     */
+    public static final String OTHER_MISSING_KEYS = "*";
+
+    private final LongAdder bundleCacheHits = new LongAdder();
+
+    private final LongAdder bundleCacheMisses = new LongAdder();
+
+    private final LongAdder bundleLoads = new LongAdder();
+
+    private final LongAdder bundlesNotFound = new LongAdder();
+
+    private final LongAdder bundleLoadNanos = new LongAdder();
+
+    private final LongAdder bundlesEvicted = new LongAdder();
+
+    private final LongAdder bundlesExpired = new LongAdder();
+
+    private final LongAdder[] keysFoundByDepth = new LongAdder[MAX_DEPTH + 1];
+
+    private final ConcurrentMap<String, LongAdder> missingKeys = new ConcurrentHashMap<>();
+
+    private final LongAdder otherMissingKeys = new LongAdder();
+
+    private final LongAdder messagesFormatted = new LongAdder();
+
+    private final LongAdder formatNanos = new LongAdder();
+
+    private final LongAdder acceptLanguageParsed = new LongAdder();
+
+    private final LongAdder acceptLanguageCached = new LongAdder();
+
+    public I18NStatistics() {
+        for (int i = 0; i < keysFoundByDepth.length; i++) {
+            keysFoundByDepth[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void bundleCacheHit(String bundleName, Locale locale) {
+        bundleCacheHits.increment();
+    }
+
+    @Override
+    public void bundleCacheMiss(String bundleName, Locale locale) {
+        bundleCacheMisses.increment();
+    }
+
+    @Override
+    public void bundleLoaded(String bundleName, Locale locale, boolean found, long nanoseconds) {
+        bundleLoads.increment();
+        if (!found) {
+            bundlesNotFound.increment();
+        }
+        bundleLoadNanos.add(nanoseconds);
+    }
+
+    @Override
+    public void bundleEvicted(String bundleName, Locale locale, boolean expired) {
+        if (expired) {
+            bundlesExpired.increment();
+        } else {
+            bundlesEvicted.increment();
+        }
+    }
+
+    @Override
+    public void keyFound(String bundleName, Locale locale, int depth) {
+        keysFoundByDepth[Math.min(depth, MAX_DEPTH)].increment();
+    }
+
+    @Override
+    public void keyMissing(String bundleName, Locale locale, String key) {
+        String name = bundleName + '_' + locale;
+        LongAdder count = missingKeys.get(name);
+        if (count == null) {
+            count = missingKeys.size() < MAX_MISSING_KEY_BUNDLES
+                    ? missingKeys.computeIfAbsent(name, n -> new LongAdder())
+                    : otherMissingKeys;
+        }
+        count.increment();
+    }
+
+    @Override
+    public void messageFormatted(String bundleName, Locale locale, long nanoseconds) {
+        messagesFormatted.increment();
+        formatNanos.add(nanoseconds);
+    }
+
+    @Override
+    public void acceptLanguageResolved(String header, boolean cached) {
+        if (cached) {
+            acceptLanguageCached.increment();
+        } else {
+            acceptLanguageParsed.increment();
+        }
+    }
+
+    public long getBundleCacheHits() {
+        return bundleCacheHits.sum();
+    }
+
+    public long getBundleCacheMisses() {
+        return bundleCacheMisses.sum();
+    }
+
+    /**
+     * @return How many bundles were loaded, including attempts for
+     *         bundles that were not found.
+     */
+    public long getBundleLoads() {
+        return bundleLoads.sum();
+    }
+
+    public long getBundlesNotFound() {
+        return bundlesNotFound.sum();
+    }
+
+    /**
+     * @return The total time spent loading bundles, in nanoseconds.
+     */
+    public long getBundleLoadNanos() {
+        return bundleLoadNanos.sum();
+    }
+
+    /**
+     * @return How many bundles were evicted from the bundle cache to
+     *         make room for others.
+     */
+    public long getBundlesEvicted() {
+        return bundlesEvicted.sum();
+    }
+
+    /**
+     * @return How many bundles were dropped from the bundle cache after
+     *         not being requested for the idle time.
+     */
+    public long getBundlesExpired() {
+        return bundlesExpired.sum();
+    }
+
+    /**
+     * @param depth The fallback depth, see
+     *              {@link I18NListener#keyFound(String, Locale, int)}.
+     * @return How many keys were found at that depth.
+     */
+    public long getKeysFound(int depth) {
+        return keysFoundByDepth[Math.min(depth, MAX_DEPTH)].sum();
+    }
+
+    /**
+     * @return How many keys were missing, by requested bundle name and
+     *         locale (<code>bundleName_locale</code>), for the first
+     *         {@link #MAX_MISSING_KEY_BUNDLES} of them, and for the
+     *         others together under {@link #OTHER_MISSING_KEYS}.
+     */
+    public Map<String, Long> getMissingKeys() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : missingKeys.entrySet()) {
+            counts.put(e.getKey(), e.getValue().sum());
+        }
+        long others = otherMissingKeys.sum();
+        if (others > 0) {
+            counts.put(OTHER_MISSING_KEYS, others);
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    public long getMessagesFormatted() {
+        return messagesFormatted.sum();
+    }
+
+    /**
+     * @return The total time spent formatting messages, in nanoseconds.
+     */
+    public long getFormatNanos() {
+        return formatNanos.sum();
+    }
+
+    /**
+     * @return How many <code>Accept-Language</code> headers were parsed.
+     */
+    public long getAcceptLanguageParsed() {
+        return acceptLanguageParsed.sum();
+    }
+
+    /**
+     * @return How many <code>Accept-Language</code> headers were found in
+     *         the cache.
+     */
+    public long getAcceptLanguageCached() {
+        return acceptLanguageCached.sum();
+    }
+
+    /**
+     * Resets all counters.
+     */
+    public void reset() {
+        bundleCacheHits.reset();
+        bundleCacheMisses.reset();
+        bundleLoads.reset();
+        bundlesNotFound.reset();
+        bundleLoadNanos.reset();
+        bundlesEvicted.reset();
+        bundlesExpired.reset();
+        for (LongAdder count : keysFoundByDepth) {
+            count.reset();
+        }
+        missingKeys.clear();
+        otherMissingKeys.reset();
+        messagesFormatted.reset();
+        formatNanos.reset();
+        acceptLanguageParsed.reset();
+        acceptLanguageCached.reset();
+    }
+}
@@ -16,7 +16,9 @@ package org.codehaus.plexus.i18n;
  * limitations under the License.
  */
 
-import java.util.*;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
 
 /**
  * Parses the HTTP <code>Accept-Language</code> header as per section
@@ -26,29 +28,18 @@ import java.util.*;
  * @version $Id: I18NTokenizer.java 6675 2007-07-20 23:05:53Z olamy $
  *
  * TODO Move this class out of here as its purely web related.
+ * @see ParsedAcceptLanguage
  */
 public class I18NTokenizer implements Iterator<Locale> {
     /**
-     * Separates elements of the <code>Accept-Language</code> HTTP
-     * header.
-     */
-    private static final String LOCALE_SEPARATOR = ",";
-
-    /**
-     * Separates locale from quality within elements.
-     */
-    private static final char QUALITY_SEPARATOR = ';';
-
-    /**
-     * The default quality value for an <code>AcceptLanguage</code>
-     * object.
+     * The parsed locales.
      */
-    private static final float DEFAULT_QUALITY = 1.0f;
+    private final ParsedAcceptLanguage locales;
 
     /**
-     * The parsed locales.
+     * The rank of the next locale.
      */
-    private final List<AcceptLanguage> locales = new ArrayList<>(3);
+    private int index;
 
     /**
      * Parses the <code>Accept-Language</code> header.
@@ -57,48 +48,24 @@ public class I18NTokenizer implements Iterator<Locale> {
      * (i.e. <code>en, es;q=0.8, zh-TW;q=0.1</code>).
      */
     public I18NTokenizer(String header) {
-        StringTokenizer tok = new StringTokenizer(header, LOCALE_SEPARATOR);
-        while (tok.hasMoreTokens()) {
-            AcceptLanguage acceptLang = new AcceptLanguage();
-            String element = tok.nextToken().trim();
-            int index;
-
-            // Record and cut off any quality value that comes after a
-            // semi-colon.
-            if ((index = element.indexOf(QUALITY_SEPARATOR)) != -1) {
-                String q = element.substring(index);
-                element = element.substring(0, index);
-                if ((index = q.indexOf('=')) != -1) {
-                    try {
-                        acceptLang.quality = Float.valueOf(q.substring(index + 1));
-                    } catch (NumberFormatException ignored) {
-                    }
-                }
-            }
-
-            element = element.trim();
-
-            // Create a Locale from the language.  A dash may separate the
-            // language from the country.
-            if ((index = element.indexOf('-')) == -1) {
-                // No dash means no country.
-                acceptLang.locale = new Locale(element, "");
-            } else {
-                acceptLang.locale = new Locale(element.substring(0, index), element.substring(index + 1));
-            }
-
-            locales.add(acceptLang);
-        }
+        this(ParsedAcceptLanguage.parse(header));
+    }
 
-        // Sort by quality in descending order.
-        locales.sort(Collections.reverseOrder());
+    /**
+     * Iterates over an already parsed <code>Accept-Language</code>
+     * header.
+     *
+     * @param locales The parsed header.
+     */
+    public I18NTokenizer(ParsedAcceptLanguage locales) {
+        this.locales = locales;
     }
 
     /**
      * @return Whether there are more locales.
      */
     public boolean hasNext() {
-        return !locales.isEmpty();
+        return index < locales.size();
     }
 
     /**
@@ -109,10 +76,10 @@ public class I18NTokenizer implements Iterator<Locale> {
      * @throws NoSuchElementException No more locales.
      */
     public Locale next() {
-        if (locales.isEmpty()) {
+        if (index >= locales.size()) {
             throw new NoSuchElementException();
         }
-        return locales.remove(0).locale;
+        return locales.getLocale(index++);
     }
 
     /**
@@ -121,25 +88,4 @@ public class I18NTokenizer implements Iterator<Locale> {
     public final void remove() {
         throw new UnsupportedOperationException(getClass().getName() + " does not support remove()");
     }
-
-    /**
-     * Struct representing an element of the HTTP
-     * <code>Accept-Language</code> header.
-     */
-    private static class AcceptLanguage implements Comparable<AcceptLanguage> {
-        /**
-         * The language and country.
-         */
-        Locale locale;
-
-        /**
-         * The quality of our locale (as values approach
-         * <code>1.0</code>, they indicate increased user preference).
-         */
-        Float quality = DEFAULT_QUALITY;
-
-        public final int compareTo(AcceptLanguage acceptLang) {
-            return quality.compareTo(acceptLang.quality);
-        }
-    }
 }
@@ -0,0 +1,102 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A {@link MessageSource} keeping its messages in memory, to stand in
+ * for an external store in tests, or to feed messages from code.  Every
+ * change to the messages of a bundle and locale gives them a new
+ * version.
+ */
+public class InMemoryMessageSource implements MessageSource {
+    private final ConcurrentMap<String, ConcurrentMap<Locale, Messages>> bundles = new ConcurrentHashMap<>();
+
+    private final AtomicLong versions = new AtomicLong();
+
+    private final LongAdder fetches = new LongAdder();
+
+    /**
+     * Sets a message.
+     */
+    public void put(String bundleName, Locale locale, String key, String value) {
+        update(bundleName, locale, messages -> messages.put(key, value));
+    }
+
+    /**
+     * Sets several messages at once, under one version.
+     */
+    public void putAll(String bundleName, Locale locale, Map<String, String> messages) {
+        update(bundleName, locale, m -> m.putAll(messages));
+    }
+
+    /**
+     * Removes a message.
+     */
+    public void remove(String bundleName, Locale locale, String key) {
+        update(bundleName, locale, messages -> messages.remove(key));
+    }
+
+    @Override
+    public Messages fetch(String bundleName, Locale locale, long knownVersion) {
+        fetches.increment();
+        Map<Locale, Messages> messagesByLocale = bundles.get(bundleName);
+        Messages messages = messagesByLocale == null ? null : messagesByLocale.get(locale);
+        if (messages == null) {
+            messages = Messages.NONE;
+        }
+        return messages.getVersion() == knownVersion ? null : messages;
+    }
+
+    @Override
+    public Set<Locale> getLocales(String bundleName) {
+        Map<Locale, Messages> messagesByLocale = bundles.get(bundleName);
+        return messagesByLocale == null ? Collections.<Locale>emptySet() : new HashSet<>(messagesByLocale.keySet());
+    }
+
+    /**
+     * @return How often messages were fetched.
+     */
+    public long getFetchCount() {
+        return fetches.sum();
+    }
+
+    /**
+     * Replaces the messages of a bundle and locale by a changed copy,
+     * with a new version.
+     */
+    private void update(String bundleName, Locale locale, Consumer<Map<String, String>> change) {
+        bundles.computeIfAbsent(bundleName, name -> new ConcurrentHashMap<>())
+                .compute(locale, (l, messages) -> {
+                    Map<String, String> copy =
+                            messages == null ? new HashMap<>() : new HashMap<>(messages.getMessages());
+                    change.accept(copy);
+                    return new Messages(copy, versions.incrementAndGet());
+                });
+    }
+}
@@ -0,0 +1,331 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * A properties bundle that only indexes its keys when loaded, and
+ * unescapes each value the first time it is looked up.  The text of
+ * the file is kept instead of its entries, which for large bundles of
+ * which only a few messages are used saves both loading time and
+ * memory.
+ * <p>
+ * The file is read as <code>java.util.Properties</code> reads it, and
+ * decoded as <code>PropertyResourceBundle</code> decodes it: as UTF-8
+ * unless it is not valid UTF-8, or as ISO-8859-1 on Java 8.
+ */
+final class LazyPropertiesBundle extends ResourceBundle {
+    /**
+     * Whether <code>PropertyResourceBundle</code> reads files as UTF-8,
+     * as it does since Java 9.
+     */
+    private static final boolean UTF_8_DEFAULT = !System.getProperty("java.specification.version", "1.8")
+                    .startsWith("1.")
+            && !"ISO-8859-1".equals(System.getProperty("java.util.PropertyResourceBundle.encoding"));
+
+    private final String text;
+
+    /**
+     * The entry number of each key.
+     */
+    private final Map<String, Integer> index;
+
+    /**
+     * Where the line of each entry starts in the text.
+     */
+    private final int[] lines;
+
+    /**
+     * The values unescaped so far.  As strings are immutable, values
+     * may be published without synchronization; at worst a value is
+     * unescaped twice.
+     */
+    private final String[] values;
+
+    private final StringPool pool;
+
+    private LazyPropertiesBundle(String text, Map<String, Integer> index, int[] lines, StringPool pool) {
+        this.text = text;
+        this.index = index;
+        this.lines = lines;
+        this.values = new String[lines.length];
+        this.pool = pool;
+    }
+
+    /**
+     * Indexes the keys of a properties file.  Keys, and values once
+     * they are unescaped, are taken from <code>pool</code>.
+     *
+     * @throws IllegalArgumentException The file has a malformed
+     *                                  <code>&#92;uxxxx</code> escape.
+     */
+    static LazyPropertiesBundle of(byte[] bytes, StringPool pool) {
+        String text = decode(bytes);
+        Map<String, Integer> index = new HashMap<>();
+        int[] lines = new int[16];
+        StringBuilder line = new StringBuilder();
+        StringBuilder key = new StringBuilder();
+        int pos = 0;
+        while (pos < text.length()) {
+            line.setLength(0);
+            int start = skipBlankLines(text, pos);
+            pos = readLine(text, start, line);
+            if (line.length() == 0) {
+                continue;
+            }
+            int keyEnd = keyEnd(line);
+            int valueStart = valueStart(line, keyEnd);
+            key.setLength(0);
+            unescape(line, 0, keyEnd, key);
+            // Check the value now, so that a malformed file fails to
+            // load as it would with PropertyResourceBundle.
+            unescape(line, valueStart, line.length(), null);
+
+            String k = pool.intern(key.toString());
+            Integer entry = index.get(k);
+            if (entry == null) {
+                entry = index.size();
+                index.put(k, entry);
+                if (entry == lines.length) {
+                    lines = Arrays.copyOf(lines, entry * 2);
+                }
+            }
+            lines[entry] = start;
+        }
+        return new LazyPropertiesBundle(
+                text, Collections.unmodifiableMap(index), Arrays.copyOf(lines, index.size()), pool);
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+        Set<String> keys = new LinkedHashSet<>(index.keySet());
+        if (parent != null) {
+            keys.addAll(parent.keySet());
+        }
+        return Collections.enumeration(keys);
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        Integer entry = index.get(key);
+        if (entry == null) {
+            return null;
+        }
+        String value = values[entry];
+        if (value == null) {
+            StringBuilder line = new StringBuilder();
+            readLine(text, lines[entry], line);
+            StringBuilder buf = new StringBuilder();
+            unescape(line, valueStart(line, keyEnd(line)), line.length(), buf);
+            value = pool.intern(buf.toString());
+            values[entry] = value;
+        }
+        return value;
+    }
+
+    @Override
+    protected Set<String> handleKeySet() {
+        return index.keySet();
+    }
+
+    /**
+     * @return An estimate of the heap taken by the bundle, in bytes: its
+     *         text, counted twice for the values unescaped from it, and
+     *         the index of its keys.  Values are not unescaped for this.
+     */
+    long estimateBytes() {
+        return 4L * text.length() + 32L * lines.length;
+    }
+
+    /**
+     * @return The parent bundle, or <code>null</code>.
+     */
+    ResourceBundle getParent() {
+        return parent;
+    }
+
+    private static String decode(byte[] bytes) {
+        if (UTF_8_DEFAULT) {
+            try {
+                return StandardCharsets.UTF_8
+                        .newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(ByteBuffer.wrap(bytes))
+                        .toString();
+            } catch (CharacterCodingException e) {
+                // fall back to ISO-8859-1
+            }
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    /**
+     * Skips whitespace and line terminators up to the start of the next
+     * line with content.
+     */
+    private static int skipBlankLines(String text, int pos) {
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (!isWhitespace(c) && c != '\r' && c != '\n') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Reads the logical line starting at <code>pos</code>, joining lines
+     * ending in a backslash with the next one, as
+     * <code>Properties.load</code> does.  Comment lines yield an empty
+     * line.
+     *
+     * @return The position after the line.
+     */
+    private static int readLine(String text, int pos, StringBuilder line) {
+        int length = text.length();
+        if (pos < length && (text.charAt(pos) == '#' || text.charAt(pos) == '!')) {
+            while (pos < length && text.charAt(pos) != '\r' && text.charAt(pos) != '\n') {
+                pos++;
+            }
+            return pos;
+        }
+        boolean precedingBackslash = false;
+        while (pos < length) {
+            char c = text.charAt(pos++);
+            if (c != '\r' && c != '\n') {
+                line.append(c);
+                precedingBackslash = c == '\\' && !precedingBackslash;
+                continue;
+            }
+            if (!precedingBackslash) {
+                return pos;
+            }
+            // Continued on the next line, without its leading
+            // whitespace.
+            line.setLength(line.length() - 1);
+            precedingBackslash = false;
+            if (c == '\r' && pos < length && text.charAt(pos) == '\n') {
+                pos++;
+            }
+            while (pos < length && isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (precedingBackslash) {
+            line.setLength(line.length() - 1);
+        }
+        return pos;
+    }
+
+    /**
+     * @return The end of the key, at the first separator that is not
+     *         escaped.
+     */
+    private static int keyEnd(CharSequence line) {
+        boolean precedingBackslash = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!precedingBackslash && (c == '=' || c == ':' || isWhitespace(c))) {
+                return i;
+            }
+            precedingBackslash = c == '\\' && !precedingBackslash;
+        }
+        return line.length();
+    }
+
+    /**
+     * @return The start of the value, after the separator and the
+     *         whitespace around it.
+     */
+    private static int valueStart(CharSequence line, int keyEnd) {
+        int i = keyEnd;
+        boolean separator = false;
+        if (i < line.length() && (line.charAt(i) == '=' || line.charAt(i) == ':')) {
+            separator = true;
+            i++;
+        }
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (!separator && (c == '=' || c == ':')) {
+                separator = true;
+            } else if (!isWhitespace(c)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Unescapes part of a line into <code>out</code>, or only checks the
+     * escapes if <code>out</code> is <code>null</code>.
+     *
+     * @throws IllegalArgumentException Malformed <code>&#92;uxxxx</code>
+     *                                  escape.
+     */
+    private static void unescape(CharSequence line, int from, int to, StringBuilder out) {
+        int i = from;
+        while (i < to) {
+            char c = line.charAt(i++);
+            if (c == '\\' && i < to) {
+                c = line.charAt(i++);
+                if (c == 'u') {
+                    int value = 0;
+                    for (int j = 0; j < 4; j++) {
+                        int digit = i < to ? Character.digit(line.charAt(i++), 16) : -1;
+                        if (digit == -1) {
+                            throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+                        }
+                        value = (value << 4) + digit;
+                    }
+                    c = (char) value;
+                } else if (c == 't') {
+                    c = '\t';
+                } else if (c == 'r') {
+                    c = '\r';
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 'f') {
+                    c = '\f';
+                }
+            }
+            if (out != null) {
+                out.append(c);
+            }
+        }
+    }
+}
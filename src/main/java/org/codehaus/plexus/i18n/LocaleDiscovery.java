@@ -0,0 +1,139 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Paths;
+import java.util.Enumeration;
+import java.util.IllformedLocaleException;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Finds the locales a bundle is available in by listing the files of
+ * its package in class path directories and jar files.  Both
+ * <code>.properties</code> and <code>.class</code> bundles are found.
+ */
+final class LocaleDiscovery {
+    private static final String[] SUFFIXES = {".properties", ".class"};
+
+    private LocaleDiscovery() {}
+
+    /**
+     * @return The locales of the bundle files found, including
+     *         <code>Locale.ROOT</code> for the base bundle, ordered by
+     *         their string form.
+     */
+    static Set<Locale> discover(String bundleName, ClassLoader loader) throws IOException {
+        int dot = bundleName.lastIndexOf('.');
+        String packagePath = dot == -1 ? "" : bundleName.substring(0, dot).replace('.', '/');
+        String simpleName = bundleName.substring(dot + 1);
+
+        Set<Locale> locales = new TreeSet<>((a, b) -> a.toString().compareTo(b.toString()));
+        Enumeration<URL> urls = loader != null
+                ? loader.getResources(packagePath)
+                : ClassLoader.getSystemClassLoader().getResources(packagePath);
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            if ("file".equals(url.getProtocol())) {
+                String[] names;
+                try {
+                    names = Paths.get(url.toURI()).toFile().list();
+                } catch (URISyntaxException | IllegalArgumentException e) {
+                    names = new File(url.getPath()).list();
+                }
+                if (names != null) {
+                    for (String name : names) {
+                        addLocale(locales, simpleName, name);
+                    }
+                }
+            } else if ("jar".equals(url.getProtocol())) {
+                URLConnection connection = url.openConnection();
+                if (connection instanceof JarURLConnection) {
+                    connection.setUseCaches(false);
+                    try (JarFile jar = ((JarURLConnection) connection).getJarFile()) {
+                        String prefix = packagePath.isEmpty() ? "" : packagePath + '/';
+                        Enumeration<JarEntry> entries = jar.entries();
+                        while (entries.hasMoreElements()) {
+                            String name = entries.nextElement().getName();
+                            if (name.startsWith(prefix) && name.indexOf('/', prefix.length()) == -1) {
+                                addLocale(locales, simpleName, name.substring(prefix.length()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return locales;
+    }
+
+    /**
+     * Turns the locale suffix of a bundle file name, as produced by
+     * <code>ResourceBundle.Control.toBundleName</code>, back into a
+     * locale.
+     *
+     * @return The canonical locale, or <code>null</code> if the suffix
+     *         is not a valid locale.
+     */
+    static Locale toLocale(String suffix) {
+        String[] parts = suffix.split("_", -1);
+        if (parts.length > 1 && parts[1].length() == 4) {
+            // language_Script_COUNTRY_variant
+            if (parts.length > 4) {
+                return null;
+            }
+            try {
+                return LocaleRegistry.intern(new Locale.Builder()
+                        .setLanguage(parts[0])
+                        .setScript(parts[1])
+                        .setRegion(parts.length > 2 ? parts[2] : "")
+                        .setVariant(parts.length > 3 ? parts[3] : "")
+                        .build());
+            } catch (IllformedLocaleException e) {
+                return null;
+            }
+        }
+        if (parts.length > 3 || parts[0].isEmpty() && parts.length == 1) {
+            return null;
+        }
+        return LocaleRegistry.intern(
+                new Locale(parts[0], parts.length > 1 ? parts[1] : "", parts.length > 2 ? parts[2] : ""));
+    }
+
+    private static void addLocale(Set<Locale> locales, String simpleName, String fileName) {
+        for (String suffix : SUFFIXES) {
+            if (fileName.endsWith(suffix)) {
+                String stem = fileName.substring(0, fileName.length() - suffix.length());
+                if (stem.equals(simpleName)) {
+                    locales.add(Locale.ROOT);
+                } else if (stem.startsWith(simpleName + '_') && stem.indexOf('$') == -1) {
+                    Locale locale = toLocale(stem.substring(simpleName.length() + 1));
+                    if (locale != null) {
+                        locales.add(locale);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Hands out one canonical instance of each locale, so that locales
+ * parsed from headers and file names are not created again, and cache
+ * keys holding them compare by identity.  The constants of
+ * <code>Locale</code> are the canonical instances of their locales.
+ * As the locales come from request headers, only the first
+ * {@link #MAX_SIZE} distinct locales are kept; further ones are
+ * returned as they are.
+ */
+final class LocaleRegistry {
+    /**
+     * The highest number of canonical locales, and of language tags
+     * remembered.
+     */
+    static final int MAX_SIZE = 1024;
+
+    private static final ConcurrentMap<Locale, Locale> LOCALES = new ConcurrentHashMap<>();
+
+    /**
+     * The locales of <code>Accept-Language</code> elements, by their
+     * text.
+     */
+    private static final ConcurrentMap<Tag, Locale> LOCALES_BY_TAG = new ConcurrentHashMap<>();
+
+    /**
+     * The text of an <code>Accept-Language</code> element, as a range of
+     * a header, so that elements can be looked up without copying them
+     * out of their header first.
+     */
+    private static final class Tag {
+        private final String text;
+
+        private final int from;
+
+        private final int to;
+
+        private final int hash;
+
+        Tag(String text, int from, int to) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            int h = 0;
+            for (int i = from; i < to; i++) {
+                h = 31 * h + text.charAt(i);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Tag)) {
+                return false;
+            }
+            Tag other = (Tag) o;
+            return hash == other.hash
+                    && to - from == other.to - other.from
+                    && text.regionMatches(from, other.text, other.from, to - from);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static {
+        for (Locale locale : new Locale[] {
+            Locale.ROOT,
+            Locale.ENGLISH,
+            Locale.FRENCH,
+            Locale.GERMAN,
+            Locale.ITALIAN,
+            Locale.JAPANESE,
+            Locale.KOREAN,
+            Locale.CHINESE,
+            Locale.SIMPLIFIED_CHINESE,
+            Locale.TRADITIONAL_CHINESE,
+            Locale.FRANCE,
+            Locale.GERMANY,
+            Locale.ITALY,
+            Locale.JAPAN,
+            Locale.KOREA,
+            Locale.UK,
+            Locale.US,
+            Locale.CANADA,
+            Locale.CANADA_FRENCH
+        }) {
+            LOCALES.putIfAbsent(locale, locale);
+        }
+    }
+
+    private LocaleRegistry() {}
+
+    /**
+     * @return The canonical instance of <code>locale</code>, or
+     *         <code>locale</code> itself if it is not registered and
+     *         the registry is full.
+     */
+    static Locale intern(Locale locale) {
+        Locale canonical = LOCALES.get(locale);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (LOCALES.size() >= MAX_SIZE) {
+            return locale;
+        }
+        canonical = LOCALES.putIfAbsent(locale, locale);
+        return canonical != null ? canonical : locale;
+    }
+
+    /**
+     * @return The canonical locale of a language and country.
+     */
+    static Locale of(String language, String country) {
+        return intern(new Locale(language, country));
+    }
+
+    /**
+     * Returns the locale of an element of an
+     * <code>Accept-Language</code> header, such as <code>en</code> or
+     * <code>fr-CA</code>.  A dash may separate the language from the
+     * country.
+     *
+     * @param header The header.
+     * @param from   The start of the element, without its quality.
+     * @param to     The end of the element.
+     * @return The canonical locale.
+     */
+    static Locale forLanguageRange(String header, int from, int to) {
+        Locale locale = LOCALES_BY_TAG.get(new Tag(header, from, to));
+        if (locale == null) {
+            String tag = header.substring(from, to);
+            int dash = tag.indexOf('-');
+            // No dash means no country.
+            locale = dash == -1 ? of(tag, "") : of(tag.substring(0, dash), tag.substring(dash + 1));
+            if (LOCALES_BY_TAG.size() < MAX_SIZE) {
+                // A key of its own, so as not to keep the header.
+                LOCALES_BY_TAG.putIfAbsent(new Tag(tag, 0, tag.length()), locale);
+            }
+        }
+        return locale;
+    }
+}
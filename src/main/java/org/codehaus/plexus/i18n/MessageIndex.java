@@ -0,0 +1,119 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * All keys visible through a list of bundles, merged in the order the
+ * bundles are searched, so that a key is resolved with a single hash
+ * lookup.  Instances are immutable.
+ */
+final class MessageIndex {
+    /**
+     * The resolved value of a key.
+     */
+    static final class Message {
+        private final String value;
+
+        private final Locale locale;
+
+        private final int depth;
+
+        Message(String value, Locale locale, int depth) {
+            this.value = value;
+            this.locale = locale;
+            this.depth = depth;
+        }
+
+        /**
+         * @return The text, or <code>null</code> if the key maps to an
+         *         object that is not a <code>String</code>.
+         */
+        String getValue() {
+            return value;
+        }
+
+        /**
+         * @return The locale of the bundle the text was found in.
+         */
+        Locale getLocale() {
+            return locale;
+        }
+
+        /**
+         * @return The position of the bundle the text was found in.
+         */
+        int getDepth() {
+            return depth;
+        }
+    }
+
+    private final Map<String, Message> messages;
+
+    private MessageIndex(Map<String, Message> messages) {
+        this.messages = messages;
+    }
+
+    /**
+     * @return The message, or <code>null</code> if no bundle has the key.
+     */
+    Message get(String key) {
+        return messages.get(key);
+    }
+
+    int size() {
+        return messages.size();
+    }
+
+    /**
+     * Merges the keys of the given bundles, earlier bundles taking
+     * precedence.
+     *
+     * @return The index, or <code>null</code> if one of the bundles does
+     *         not reliably enumerate its keys, or loads its values on
+     *         demand or keeps them off the heap, which merging would
+     *         defeat.
+     */
+    static MessageIndex of(List<ResourceBundle> bundles) {
+        int capacity = 0;
+        for (ResourceBundle rb : bundles) {
+            if (!(BundleControl.listsAllKeys(rb)
+                    || (rb instanceof CatalogBundle && !((CatalogBundle) rb).isOffHeap()))) {
+                return null;
+            }
+            capacity += rb.keySet().size();
+        }
+
+        Map<String, Message> messages = new HashMap<>(Math.max(16, capacity * 4 / 3 + 1));
+        for (int depth = 0; depth < bundles.size(); depth++) {
+            ResourceBundle rb = bundles.get(depth);
+            Locale locale = rb.getLocale();
+            for (String key : rb.keySet()) {
+                if (!messages.containsKey(key)) {
+                    Object value = rb.getObject(key);
+                    messages.put(key, new Message(value instanceof String ? (String) value : null, locale, depth));
+                }
+            }
+        }
+        return new MessageIndex(messages);
+    }
+}
@@ -0,0 +1,120 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A store of messages other than bundle files, such as a database,
+ * which {@link DefaultI18N} consults in place of or alongside
+ * <code>ResourceBundle</code>s.  Messages are fetched a whole bundle
+ * and locale at a time, and carry a version, so that messages that did
+ * not change need not be fetched again.  {@link DefaultI18N} only
+ * fetches messages on the request path the first time they are used;
+ * afterwards it fetches them again in the background.
+ * Implementations must be thread-safe.
+ *
+ * @see DefaultI18N#setMessageSource(MessageSource)
+ * @see InMemoryMessageSource
+ */
+public interface MessageSource {
+    /**
+     * Stands for the version of messages that were never fetched.
+     */
+    long NO_VERSION = -1;
+
+    /**
+     * Fetches the messages of a bundle in one locale, without those of
+     * more general locales, which are fetched separately.
+     *
+     * @param bundleName   The name of the bundle.
+     * @param locale       The locale.
+     * @param knownVersion The version of the messages fetched last time,
+     *                     or {@link #NO_VERSION}.
+     * @return The messages, {@link Messages#NONE} if the store has none,
+     *         or <code>null</code> if they are still at
+     *         <code>knownVersion</code>.
+     * @throws IOException The store could not be read.
+     */
+    Messages fetch(String bundleName, Locale locale, long knownVersion) throws IOException;
+
+    /**
+     * Lists the locales the store has messages of a bundle in, so that
+     * messages are only fetched for those, rather than for every
+     * requested locale, such as those of made up
+     * <code>Accept-Language</code> headers.  The list is fetched again
+     * in the background like the messages.
+     *
+     * @param bundleName The name of the bundle.
+     * @return The locales, or <code>null</code> (the default) if the
+     *         store cannot tell, in which case messages are fetched for
+     *         each requested locale.
+     * @throws IOException The store could not be read.
+     */
+    default Set<Locale> getLocales(String bundleName) throws IOException {
+        return null;
+    }
+
+    /**
+     * The messages of a bundle in one locale, at some version.
+     * Instances are immutable.
+     */
+    final class Messages {
+        /**
+         * The messages of a bundle the store does not have.
+         */
+        public static final Messages NONE = new Messages(Collections.<String, String>emptyMap(), 0);
+
+        private final Map<String, String> messages;
+
+        private final long version;
+
+        /**
+         * @param messages The messages by key, which are copied.
+         * @param version  The version of the messages, which changes
+         *                 whenever they do; never negative.
+         */
+        public Messages(Map<String, String> messages, long version) {
+            if (version < 0) {
+                throw new IllegalArgumentException("Negative version: " + version);
+            }
+            this.messages = Collections.unmodifiableMap(new HashMap<>(messages));
+            this.version = version;
+        }
+
+        /**
+         * @return The message, or <code>null</code> if there is none for
+         *         the key.
+         */
+        public String get(String key) {
+            return messages.get(key);
+        }
+
+        public Map<String, String> getMessages() {
+            return messages;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
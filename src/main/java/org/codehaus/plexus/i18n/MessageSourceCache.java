@@ -0,0 +1,400 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the messages of a {@link MessageSource}, refreshing them
+ * ahead of requests: the messages of a bundle and locale are fetched
+ * on the request path only the first time they are used.  Afterwards
+ * they are returned at once, and the first use after the refresh
+ * interval fetches them again in the background, so that requests see
+ * the new messages shortly after, and never wait for the store.
+ * Messages that are not used are not fetched again.  If fetching
+ * fails, the messages fetched last are kept, and fetching is tried
+ * again after the refresh interval.
+ * <p>
+ * A bundle is built from the messages of the most specific candidate
+ * locale the store has messages in, or the bundle files have a bundle
+ * for, and of the locales following it, and has that locale.  Requests
+ * for locales the store knows nothing of, such as those of made up
+ * <code>Accept-Language</code> headers, thus get the same bundle as
+ * the locale they fall back to.  If the store lists its locales, see
+ * {@link MessageSource#getLocales(String)}, messages are only fetched
+ * for those.  Otherwise they are fetched for each requested locale,
+ * and those of locales that turn out to have none are kept only in a
+ * bounded cache.
+ */
+final class MessageSourceCache {
+    /**
+     * Told of messages that changed.
+     */
+    interface ChangeListener {
+        /**
+         * Called from the thread that fetched the new messages.
+         */
+        void changed(String bundleName, Locale locale);
+    }
+
+    /**
+     * The number of locales without messages whose empty messages are
+     * kept for each bundle name, so that they are not fetched on every
+     * request.
+     */
+    private static final int EMPTY_HOLDERS_SIZE = 256;
+
+    /**
+     * Something fetched from the store: on the request path the first
+     * time it is used, and afterwards in the background when due.
+     */
+    abstract class Fetched {
+        private final CompletableFuture<Void> fetched = new CompletableFuture<>();
+
+        /**
+         * When it is next fetched, in terms of
+         * <code>System.nanoTime()</code>.
+         */
+        private volatile long refreshAt;
+
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Fetches it for the first time, on behalf of all requests for
+         * it.
+         */
+        void fetchFirst() {
+            try {
+                fetch(false);
+            } finally {
+                fetched.complete(null);
+            }
+        }
+
+        /**
+         * Waits for the first fetch if it is under way, or else fetches
+         * it again in the background if it is due.
+         */
+        void awaitFetched() {
+            if (!fetched.isDone()) {
+                fetched.join();
+            } else {
+                refreshIfDue();
+            }
+        }
+
+        /**
+         * Fetches it again in the background if it is due.
+         */
+        void refreshIfDue() {
+            if (System.nanoTime() - refreshAt < 0 || !refreshing.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.get().execute(() -> {
+                    try {
+                        fetch(true);
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refreshing.set(false);
+            }
+        }
+
+        /**
+         * Fetches it again, keeping what was fetched before if fetching
+         * fails.
+         *
+         * @param notify Whether to tell the listener of changes.
+         */
+        private void fetch(boolean notify) {
+            try {
+                fetchFromSource(notify);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to fetch {}", this, e);
+            } finally {
+                refreshAt = System.nanoTime() + refreshInterval;
+            }
+        }
+
+        /**
+         * @param notify Whether to tell the listener of changes.
+         * @throws IOException The store could not be read.
+         */
+        abstract void fetchFromSource(boolean notify) throws IOException;
+    }
+
+    /**
+     * The messages of a bundle in one locale, replaced when they
+     * change.
+     */
+    final class Holder extends Fetched {
+        private final String bundleName;
+
+        private final Locale locale;
+
+        /**
+         * The messages, {@link MessageSource.Messages#NONE} until first
+         * fetched.
+         */
+        private volatile MessageSource.Messages messages = MessageSource.Messages.NONE;
+
+        /**
+         * Whether messages were ever fetched successfully.  Until then
+         * they are fetched as if they never were.
+         */
+        private volatile boolean loaded;
+
+        Holder(String bundleName, Locale locale) {
+            this.bundleName = bundleName;
+            this.locale = locale;
+        }
+
+        /**
+         * @return The message, or <code>null</code> if none.
+         */
+        String get(String key) {
+            refreshIfDue();
+            return messages.get(key);
+        }
+
+        Set<String> keySet() {
+            return messages.getMessages().keySet();
+        }
+
+        boolean isEmpty() {
+            return messages.getMessages().isEmpty();
+        }
+
+        @Override
+        void fetchFromSource(boolean notify) throws IOException {
+            MessageSource.Messages current = messages;
+            boolean loaded = this.loaded;
+            MessageSource.Messages next =
+                    source.fetch(bundleName, locale, loaded ? current.getVersion() : MessageSource.NO_VERSION);
+            if (next == null || (loaded && next.getVersion() == current.getVersion())) {
+                return;
+            }
+            messages = next;
+            this.loaded = true;
+            if (notify && next != current) {
+                listener.changed(bundleName, locale);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "the messages of bundle " + bundleName + " for locale " + locale;
+        }
+    }
+
+    /**
+     * The locales the store has messages of a bundle in, if it can tell.
+     */
+    final class LocaleList extends Fetched {
+        private final String bundleName;
+
+        /**
+         * The locales, or <code>null</code> if the store cannot tell.
+         */
+        private volatile Set<Locale> locales;
+
+        LocaleList(String bundleName) {
+            this.bundleName = bundleName;
+        }
+
+        @Override
+        void fetchFromSource(boolean notify) throws IOException {
+            Set<Locale> current = locales;
+            Set<Locale> next = source.getLocales(bundleName);
+            locales = next != null ? Collections.unmodifiableSet(new HashSet<>(next)) : null;
+            if (notify && current != null && next != null) {
+                for (Locale locale : next) {
+                    if (!current.contains(locale)) {
+                        listener.changed(bundleName, locale);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "the locales of bundle " + bundleName;
+        }
+    }
+
+    private final Logger log = LoggerFactory.getLogger(MessageSourceCache.class);
+
+    private final MessageSource source;
+
+    /**
+     * How long, in nanoseconds, fetched messages are used before they
+     * are fetched again.
+     */
+    private final long refreshInterval;
+
+    private final Supplier<Executor> executor;
+
+    private final ChangeListener listener;
+
+    private final ConcurrentMap<String, LocaleList> localeLists = new ConcurrentHashMap<>();
+
+    /**
+     * The messages being fetched or used by bundles, by bundle name and
+     * locale.
+     */
+    private final ConcurrentMap<String, ConcurrentMap<Locale, Holder>> holders = new ConcurrentHashMap<>();
+
+    /**
+     * The messages of requested locales the store had none of, by
+     * bundle name and locale.
+     */
+    private final ConcurrentMap<String, BoundedCache<Locale, Holder>> emptyHolders = new ConcurrentHashMap<>();
+
+    /**
+     * @param refreshInterval How long, in milliseconds, fetched messages
+     *                        are used before they are fetched again.
+     * @param executor        Supplies the executor fetching messages in
+     *                        the background.
+     */
+    MessageSourceCache(
+            MessageSource source, long refreshInterval, Supplier<Executor> executor, ChangeListener listener) {
+        this.source = source;
+        this.refreshInterval = TimeUnit.MILLISECONDS.toNanos(refreshInterval);
+        this.executor = executor;
+        this.listener = listener;
+    }
+
+    /**
+     * Creates a bundle of the messages of <code>locale</code> and of its
+     * more general locales, falling back to <code>parent</code>.  The
+     * bundle always has the messages last fetched.  Its locale is the
+     * most specific one that the store has messages in, or that of
+     * <code>parent</code> if that is more specific.
+     *
+     * @param parent The bundle of the files, or <code>null</code> for
+     *               none.
+     * @return The bundle, or <code>null</code> if the store has no
+     *         messages for the bundle and there is no parent.
+     */
+    ResourceBundle getBundle(String bundleName, Locale locale, ResourceBundle parent) {
+        LocaleList localeList = get(localeLists, bundleName, LocaleList::new);
+        Set<Locale> locales = localeList.locales;
+        ConcurrentMap<Locale, Holder> holdersByLocale = holders.get(bundleName);
+        if (holdersByLocale == null) {
+            holdersByLocale = holders.computeIfAbsent(bundleName, name -> new ConcurrentHashMap<>(4));
+        }
+        Locale parentLocale = parent != null ? parent.getLocale() : null;
+        Locale bundleLocale = null;
+        List<Holder> chain = new ArrayList<>();
+        for (Locale candidate : BundleControl.CACHING.getCandidateLocales(bundleName, locale)) {
+            Holder holder = locales == null || locales.contains(candidate)
+                    ? getHolder(bundleName, holdersByLocale, candidate)
+                    : null;
+            if (bundleLocale == null) {
+                if ((holder == null || holder.isEmpty()) && !candidate.equals(parentLocale)) {
+                    if (holder != null) {
+                        setAside(bundleName, holdersByLocale, holder);
+                    }
+                    continue;
+                }
+                bundleLocale = candidate;
+            }
+            if (holder != null) {
+                Holder kept = holdersByLocale.putIfAbsent(candidate, holder);
+                chain.add(kept != null ? kept : holder);
+            }
+        }
+        if (bundleLocale == null) {
+            if (parent == null) {
+                return null;
+            }
+            bundleLocale = parentLocale;
+        }
+        return new SourceBundle(bundleLocale, localeList, chain.toArray(new Holder[0]), parent);
+    }
+
+    /**
+     * Returns the messages of a bundle in one locale, among those in use
+     * or else those found empty before, fetching them first if they were
+     * never fetched.
+     */
+    private Holder getHolder(String bundleName, ConcurrentMap<Locale, Holder> holdersByLocale, Locale locale) {
+        if (!holdersByLocale.containsKey(locale)) {
+            BoundedCache<Locale, Holder> empty = emptyHolders.get(bundleName);
+            Holder holder = empty != null ? empty.get(locale) : null;
+            if (holder != null) {
+                holder.refreshIfDue();
+                return holder;
+            }
+        }
+        return get(holdersByLocale, locale, l -> new Holder(bundleName, l));
+    }
+
+    /**
+     * Moves the empty messages of a locale that no bundle uses to the
+     * bounded cache of such messages.
+     */
+    private void setAside(String bundleName, ConcurrentMap<Locale, Holder> holdersByLocale, Holder holder) {
+        holdersByLocale.remove(holder.locale, holder);
+        BoundedCache<Locale, Holder> empty = emptyHolders.get(bundleName);
+        if (empty == null) {
+            empty = emptyHolders.computeIfAbsent(bundleName, name -> new BoundedCache<>(EMPTY_HOLDERS_SIZE));
+        }
+        empty.put(holder.locale, holder);
+    }
+
+    /**
+     * Returns what is fetched for a key, fetching it first if it was
+     * never fetched.  Concurrent requests for the same key wait for a
+     * single fetch.
+     */
+    private static <K, T extends Fetched> T get(ConcurrentMap<K, T> map, K key, Function<K, T> factory) {
+        T fetched = map.get(key);
+        if (fetched == null) {
+            T fetching = factory.apply(key);
+            fetched = map.putIfAbsent(key, fetching);
+            if (fetched == null) {
+                fetching.fetchFirst();
+                return fetching;
+            }
+        }
+        fetched.awaitFetched();
+        return fetched;
+    }
+}
@@ -0,0 +1,324 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.FieldPosition;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A message pattern, compiled for the cheapest way of formatting it
+ * that gives the same text as <code>MessageFormat</code>.  Patterns
+ * without arguments are kept as their unquoted text, and patterns
+ * whose arguments are plain (<code>{0}</code>), numbers
+ * (<code>{0,number}</code>, optionally <code>integer</code>,
+ * <code>percent</code> or <code>currency</code>), dates or times
+ * (<code>{0,date}</code>, optionally <code>short</code>,
+ * <code>medium</code>, <code>long</code> or <code>full</code>) as
+ * literal chunks between arguments.  Any other pattern, such as one
+ * with a choice or a custom number or date pattern, is kept as a
+ * <code>MessageFormat</code>.  Instances are immutable, so they can be
+ * shared between threads.
+ */
+final class MessageTemplate {
+    /**
+     * The highest number of digits of an argument number handled here,
+     * so that it cannot overflow.  Longer ones are left to
+     * <code>MessageFormat</code>.
+     */
+    private static final int MAX_ARGUMENT_DIGITS = 4;
+
+    /**
+     * The buffer that {@link #formatTo(Object[], Appendable)} formats a
+     * <code>MessageFormat</code> into for targets other than a
+     * <code>StringBuffer</code>, one per thread.  A buffer grown beyond
+     * {@link #MAX_FORMAT_BUFFER_CAPACITY} is not kept.
+     */
+    private static final ThreadLocal<StringBuffer> FORMAT_BUFFERS = new ThreadLocal<>();
+
+    private static final int MAX_FORMAT_BUFFER_CAPACITY = 8192;
+
+    private static final String[] DATE_STYLES = {"", "short", "medium", "long", "full"};
+
+    private static final int[] DATE_STYLE_VALUES = {
+        DateFormat.DEFAULT, DateFormat.SHORT, DateFormat.MEDIUM, DateFormat.LONG, DateFormat.FULL
+    };
+
+    private final Locale locale;
+
+    /**
+     * The literal chunks, one more than there are arguments, or
+     * <code>null</code> for a <code>MessageFormat</code>.
+     */
+    private final String[] texts;
+
+    /**
+     * The argument number following each literal chunk but the last.
+     */
+    private final int[] arguments;
+
+    /**
+     * The format of each argument, or <code>null</code> for the default
+     * formatting.  These are never used but to be cloned, as formats
+     * are not thread-safe.
+     */
+    private final Format[] formats;
+
+    /**
+     * The parsed pattern, never used but to be cloned, as
+     * <code>MessageFormat</code> is not thread-safe.
+     */
+    private final MessageFormat prototype;
+
+    private MessageTemplate(
+            Locale locale, String[] texts, int[] arguments, Format[] formats, MessageFormat prototype) {
+        this.locale = locale;
+        this.texts = texts;
+        this.arguments = arguments;
+        this.formats = formats;
+        this.prototype = prototype;
+    }
+
+    /**
+     * @param pattern The pattern, in <code>MessageFormat</code> syntax.
+     * @param locale  The locale to format arguments for.
+     * @throws IllegalArgumentException The pattern is invalid.
+     */
+    static MessageTemplate compile(String pattern, Locale locale) {
+        List<String> texts = new ArrayList<>();
+        List<Integer> arguments = new ArrayList<>();
+        List<Format> formats = new ArrayList<>();
+        StringBuilder text = new StringBuilder(pattern.length());
+        boolean quoted = false;
+        int length = pattern.length();
+        for (int i = 0; i < length; i++) {
+            char ch = pattern.charAt(i);
+            if (ch == '\'') {
+                if (i + 1 < length && pattern.charAt(i + 1) == '\'') {
+                    text.append(ch);
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (ch == '{' && !quoted) {
+                int end = i + 1;
+                int argument = 0;
+                while (end < length && end - i <= MAX_ARGUMENT_DIGITS && isDigit(pattern.charAt(end))) {
+                    argument = argument * 10 + (pattern.charAt(end) - '0');
+                    end++;
+                }
+                int close = end < length ? pattern.indexOf('}', end) : -1;
+                Format format = null;
+                if (end > i + 1 && close == end) {
+                    // Plain argument.
+                } else if (end > i + 1 && close > end && pattern.charAt(end) == ',') {
+                    format = newFormat(pattern.substring(end + 1, close), locale);
+                }
+                if (end == i + 1 || close < 0 || (close > end && format == null)) {
+                    // Not an argument number, or a format left to
+                    // MessageFormat, which also reports invalid ones.
+                    return new MessageTemplate(locale, null, null, null, new MessageFormat(pattern, locale));
+                }
+                texts.add(text.toString());
+                arguments.add(argument);
+                formats.add(format);
+                text.setLength(0);
+                i = close;
+            } else {
+                text.append(ch);
+            }
+        }
+        texts.add(text.toString());
+
+        int[] numbers = new int[arguments.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = arguments.get(i);
+        }
+        return new MessageTemplate(
+                locale, texts.toArray(new String[0]), numbers, formats.toArray(new Format[0]), null);
+    }
+
+    /**
+     * Creates the format of an argument as <code>MessageFormat</code>
+     * does, for the format types and styles handled here.
+     *
+     * @param typeAndStyle The format type, optionally followed by a
+     *                     comma and the format style.
+     * @return The format, or <code>null</code> if it is left to
+     *         <code>MessageFormat</code>.
+     */
+    private static Format newFormat(String typeAndStyle, Locale locale) {
+        if (typeAndStyle.indexOf('\'') >= 0 || typeAndStyle.indexOf('{') >= 0) {
+            return null;
+        }
+        int comma = typeAndStyle.indexOf(',');
+        String type = toKeyword(comma < 0 ? typeAndStyle : typeAndStyle.substring(0, comma));
+        String style = comma < 0 ? "" : toKeyword(typeAndStyle.substring(comma + 1));
+        switch (type) {
+            case "number":
+                switch (style) {
+                    case "":
+                        return NumberFormat.getInstance(locale);
+                    case "currency":
+                        return NumberFormat.getCurrencyInstance(locale);
+                    case "percent":
+                        return NumberFormat.getPercentInstance(locale);
+                    case "integer":
+                        return NumberFormat.getIntegerInstance(locale);
+                    default:
+                        return null;
+                }
+            case "date":
+            case "time":
+                for (int i = 0; i < DATE_STYLES.length; i++) {
+                    if (DATE_STYLES[i].equals(style)) {
+                        return type.equals("date")
+                                ? DateFormat.getDateInstance(DATE_STYLE_VALUES[i], locale)
+                                : DateFormat.getTimeInstance(DATE_STYLE_VALUES[i], locale);
+                    }
+                }
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    private static String toKeyword(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    /**
+     * @return <code>true</code> if the pattern has no arguments, so that
+     *         its text is the same whatever the arguments.
+     */
+    boolean isLiteral() {
+        return texts != null && arguments.length == 0;
+    }
+
+    /**
+     * @return <code>true</code> if the pattern is formatted by a
+     *         <code>MessageFormat</code>.
+     */
+    boolean isMessageFormat() {
+        return prototype != null;
+    }
+
+    /**
+     * @param args The arguments, or <code>null</code> for none.
+     * @return The formatted text.
+     */
+    String format(Object[] args) {
+        if (prototype != null) {
+            return ((MessageFormat) prototype.clone()).format(args);
+        }
+        if (arguments.length == 0) {
+            return texts[0];
+        }
+        StringBuilder out = new StringBuilder();
+        try {
+            formatArguments(args, out);
+        } catch (IOException e) {
+            // StringBuilder does not throw it.
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends the formatted text to <code>out</code>.  A
+     * <code>MessageFormat</code> formats straight into <code>out</code>
+     * if it is a <code>StringBuffer</code>, or else into a buffer kept
+     * per thread, so that no <code>String</code> is created for the
+     * message.
+     *
+     * @param args The arguments, or <code>null</code> for none.
+     * @param out  Where to write the text.
+     * @throws IOException Writing to <code>out</code> failed.
+     */
+    void formatTo(Object[] args, Appendable out) throws IOException {
+        if (prototype == null) {
+            formatArguments(args, out);
+            return;
+        }
+
+        MessageFormat format = (MessageFormat) prototype.clone();
+        if (out instanceof StringBuffer) {
+            format.format(args, (StringBuffer) out, new FieldPosition(0));
+            return;
+        }
+        // Taken from the thread while in use, as formatting an argument
+        // may format another message on the same thread.
+        StringBuffer buffer = FORMAT_BUFFERS.get();
+        if (buffer == null) {
+            buffer = new StringBuffer();
+        } else {
+            FORMAT_BUFFERS.remove();
+        }
+        try {
+            format.format(args, buffer, new FieldPosition(0));
+            out.append(buffer);
+        } finally {
+            if (buffer.capacity() <= MAX_FORMAT_BUFFER_CAPACITY) {
+                buffer.setLength(0);
+                FORMAT_BUFFERS.set(buffer);
+            }
+        }
+    }
+
+    /**
+     * Writes the literal chunks and arguments as
+     * <code>MessageFormat</code> does.
+     */
+    private void formatArguments(Object[] args, Appendable out) throws IOException {
+        out.append(texts[0]);
+        for (int i = 0; i < arguments.length; i++) {
+            int argument = arguments[i];
+            if (args == null || argument >= args.length) {
+                out.append('{').append(Integer.toString(argument)).append('}');
+            } else {
+                Object arg = args[argument];
+                if (arg == null) {
+                    out.append("null");
+                } else if (formats[i] != null) {
+                    out.append(((Format) formats[i].clone()).format(arg));
+                } else if (arg instanceof Number) {
+                    out.append(NumberFormat.getInstance(locale).format(arg));
+                } else if (arg instanceof Date) {
+                    out.append(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale)
+                            .format(arg));
+                } else if (arg instanceof String) {
+                    out.append((String) arg);
+                } else {
+                    String text = arg.toString();
+                    out.append(text != null ? text : "null");
+                }
+            }
+            out.append(texts[i + 1]);
+        }
+    }
+}
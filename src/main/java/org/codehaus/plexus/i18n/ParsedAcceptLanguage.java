@@ -0,0 +1,336 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The elements of an HTTP <code>Accept-Language</code> header, ranked
+ * by quality in descending order.  Elements of equal quality keep the
+ * order in which they appear in the header.
+ * <p>
+ * The header is scanned once, by index, and quality values are parsed
+ * without creating intermediate strings.  The locales are the canonical
+ * instances of {@link LocaleRegistry}.  Instances are immutable and
+ * may be shared between threads.
+ *
+ * @see I18NTokenizer
+ */
+public final class ParsedAcceptLanguage {
+    /**
+     * Separates elements of the <code>Accept-Language</code> HTTP
+     * header.
+     */
+    private static final char LOCALE_SEPARATOR = ',';
+
+    /**
+     * Separates locale from quality within elements.
+     */
+    private static final char QUALITY_SEPARATOR = ';';
+
+    /**
+     * The default quality value of an element.
+     */
+    private static final float DEFAULT_QUALITY = 1.0f;
+
+    /**
+     * Below this many elements ranking uses an insertion sort.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    /**
+     * The powers of ten that are exact <code>float</code>s.
+     */
+    private static final float[] POWERS_OF_TEN = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    /**
+     * The highest number of which all smaller ones are exact
+     * <code>float</code>s.
+     */
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    private static final ParsedAcceptLanguage EMPTY = new ParsedAcceptLanguage(new Locale[0], new float[0], 0);
+
+    private final Locale[] locales;
+
+    private final float[] qualities;
+
+    private final int size;
+
+    private ParsedAcceptLanguage(Locale[] locales, float[] qualities, int size) {
+        this.locales = locales;
+        this.qualities = qualities;
+        this.size = size;
+    }
+
+    /**
+     * Parses an <code>Accept-Language</code> header.
+     *
+     * @param header The <code>Accept-Language</code> header
+     * (i.e. <code>en, es;q=0.8, zh-TW;q=0.1</code>).
+     * @return The ranked elements of the header.
+     */
+    public static ParsedAcceptLanguage parse(String header) {
+        int length = header.length();
+        Locale[] locales = new Locale[4];
+        float[] qualities = new float[4];
+        int size = 0;
+
+        int start = 0;
+        while (start <= length) {
+            int end = header.indexOf(LOCALE_SEPARATOR, start);
+            if (end == -1) {
+                end = length;
+            }
+            if (end > start) {
+                if (size == locales.length) {
+                    locales = Arrays.copyOf(locales, size * 2);
+                    qualities = Arrays.copyOf(qualities, size * 2);
+                }
+                int from = skipWhitespace(header, start, end);
+                int to = trimWhitespace(header, from, end);
+                float quality = DEFAULT_QUALITY;
+
+                // Record and cut off any quality value that comes after a
+                // semi-colon.
+                int index = indexOf(header, QUALITY_SEPARATOR, from, to);
+                if (index != -1) {
+                    int equals = indexOf(header, '=', index, to);
+                    if (equals != -1) {
+                        quality = parseQuality(header, equals + 1, to);
+                    }
+                    to = trimWhitespace(header, from, index);
+                }
+
+                locales[size] = toLocale(header, from, to);
+                qualities[size] = quality;
+                size++;
+            }
+            start = end + 1;
+        }
+
+        if (size == 0) {
+            return EMPTY;
+        }
+        rank(locales, qualities, size);
+        return new ParsedAcceptLanguage(locales, qualities, size);
+    }
+
+    /**
+     * @return The number of elements in the header.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Whether the header had no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param index The rank of the element, starting at <code>0</code>.
+     * @return The locale of the element.
+     */
+    public Locale getLocale(int index) {
+        checkIndex(index);
+        return locales[index];
+    }
+
+    /**
+     * @param index The rank of the element, starting at <code>0</code>.
+     * @return The quality of the element.
+     */
+    public float getQuality(int index) {
+        checkIndex(index);
+        return qualities[index];
+    }
+
+    /**
+     * @return The ranked locales.
+     */
+    public Locale[] getLocales() {
+        return Arrays.copyOf(locales, size);
+    }
+
+    /**
+     * @return The qualities of the ranked locales.
+     */
+    public float[] getQualities() {
+        return Arrays.copyOf(qualities, size);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                buf.append(", ");
+            }
+            buf.append(locales[i]).append(";q=").append(qualities[i]);
+        }
+        return buf.toString();
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Gets the canonical <code>Locale</code> of the language.  A dash
+     * may separate the language from the country.
+     */
+    private static Locale toLocale(String header, int from, int to) {
+        return LocaleRegistry.forLanguageRange(header, from, to);
+    }
+
+    /**
+     * Parses a quality value such as <code>0.8</code>.  Plain decimal
+     * digits that make an exact <code>float</code> are divided by a
+     * power of ten in <code>float</code> arithmetic, which rounds the
+     * quotient once, to the value <code>Float.parseFloat</code> gives.
+     * Anything else is handed to <code>Float.parseFloat</code>; values
+     * it rejects get the default quality.
+     */
+    private static float parseQuality(String header, int from, int to) {
+        from = skipWhitespace(header, from, to);
+        to = trimWhitespace(header, from, to);
+
+        long digits = 0;
+        int integerDigits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        int i = from;
+        for (; i < to; i++) {
+            char c = header.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = digits * 10 + (c - '0');
+                if (fraction) {
+                    fractionDigits++;
+                } else {
+                    integerDigits++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+
+        if (i == to
+                && integerDigits + fractionDigits > 0
+                && integerDigits + fractionDigits <= 18
+                && fractionDigits < POWERS_OF_TEN.length
+                && digits <= MAX_EXACT_FLOAT) {
+            return digits / POWERS_OF_TEN[fractionDigits];
+        }
+
+        try {
+            return Float.parseFloat(header.substring(from, to));
+        } catch (NumberFormatException ignored) {
+            return DEFAULT_QUALITY;
+        }
+    }
+
+    /**
+     * Sorts by quality in descending order, keeping the header order of
+     * elements with the same quality.
+     */
+    private static void rank(Locale[] locales, float[] qualities, int size) {
+        if (size < INSERTION_SORT_THRESHOLD) {
+            for (int i = 1; i < size; i++) {
+                Locale locale = locales[i];
+                float quality = qualities[i];
+                int j = i - 1;
+                while (j >= 0 && Float.compare(qualities[j], quality) < 0) {
+                    locales[j + 1] = locales[j];
+                    qualities[j + 1] = qualities[j];
+                    j--;
+                }
+                locales[j + 1] = locale;
+                qualities[j + 1] = quality;
+            }
+            return;
+        }
+
+        Locale[] locales2 = new Locale[size];
+        float[] qualities2 = new float[size];
+        Locale[] srcLocales = locales;
+        float[] srcQualities = qualities;
+        Locale[] dstLocales = locales2;
+        float[] dstQualities = qualities2;
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size; lo += 2 * width) {
+                int mid = Math.min(lo + width, size);
+                int hi = Math.min(lo + 2 * width, size);
+                int left = lo;
+                int right = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (left < mid && (right >= hi || Float.compare(srcQualities[left], srcQualities[right]) >= 0)) {
+                        dstLocales[k] = srcLocales[left];
+                        dstQualities[k] = srcQualities[left++];
+                    } else {
+                        dstLocales[k] = srcLocales[right];
+                        dstQualities[k] = srcQualities[right++];
+                    }
+                }
+            }
+            Locale[] tmpLocales = srcLocales;
+            srcLocales = dstLocales;
+            dstLocales = tmpLocales;
+            float[] tmpQualities = srcQualities;
+            srcQualities = dstQualities;
+            dstQualities = tmpQualities;
+        }
+        if (srcLocales != locales) {
+            System.arraycopy(srcLocales, 0, locales, 0, size);
+            System.arraycopy(srcQualities, 0, qualities, 0, size);
+        }
+    }
+
+    private static int indexOf(String s, char c, int from, int to) {
+        int index = s.indexOf(c, from);
+        return index < to ? index : -1;
+    }
+
+    /**
+     * Skips leading characters that <code>String.trim()</code> would
+     * remove.
+     */
+    private static int skipWhitespace(String s, int from, int to) {
+        while (from < to && s.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Skips trailing characters that <code>String.trim()</code> would
+     * remove.
+     */
+    private static int trimWhitespace(String s, int from, int to) {
+        while (to > from && s.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+}
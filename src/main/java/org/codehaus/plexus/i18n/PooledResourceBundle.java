@@ -0,0 +1,66 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.ListResourceBundle;
+import java.util.ResourceBundle;
+
+/**
+ * A copy of a properties bundle whose keys and values come from a
+ * {@link StringPool}.  It is a <code>ListResourceBundle</code>, so it
+ * is looked up just like the bundle it replaces.
+ */
+final class PooledResourceBundle extends ListResourceBundle {
+    /**
+     * The contents until they are loaded into the lookup table of
+     * <code>ListResourceBundle</code>, which asks for them once.
+     */
+    private Object[][] contents;
+
+    private PooledResourceBundle(Object[][] contents) {
+        this.contents = contents;
+    }
+
+    static PooledResourceBundle of(ResourceBundle rb, StringPool pool) {
+        Object[][] contents = new Object[rb.keySet().size()][];
+        int i = 0;
+        for (String key : rb.keySet()) {
+            Object value = rb.getObject(key);
+            if (value instanceof String) {
+                value = pool.intern((String) value);
+            }
+            contents[i++] = new Object[] {pool.intern(key), value};
+        }
+        PooledResourceBundle pooled = new PooledResourceBundle(contents);
+        // Build the lookup table now, so that the contents can go.
+        pooled.handleKeySet();
+        return pooled;
+    }
+
+    @Override
+    protected synchronized Object[][] getContents() {
+        Object[][] contents = this.contents;
+        this.contents = null;
+        return contents;
+    }
+
+    /**
+     * @return The parent bundle, or <code>null</code>.
+     */
+    ResourceBundle getParent() {
+        return parent;
+    }
+}
@@ -0,0 +1,136 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.Set;
+
+/**
+ * A bundle of the messages of a {@link MessageSource}, looked up in the
+ * messages of the locale and then of its more general locales, before
+ * the parent.  Lookups always see the messages fetched last, so the
+ * bundle can be cached while the messages change.
+ */
+final class SourceBundle extends ResourceBundle {
+    private final Locale locale;
+
+    /**
+     * The locales the store has messages of the bundle in, refreshed
+     * along with the messages, so that messages of new locales are
+     * seen.
+     */
+    private final MessageSourceCache.LocaleList localeList;
+
+    /**
+     * The messages of the locale and of its more general locales, most
+     * specific first.
+     */
+    private final MessageSourceCache.Holder[] holders;
+
+    SourceBundle(
+            Locale locale,
+            MessageSourceCache.LocaleList localeList,
+            MessageSourceCache.Holder[] holders,
+            ResourceBundle parent) {
+        this.locale = locale;
+        this.localeList = localeList;
+        this.holders = holders;
+        setParent(parent);
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Looks up a key in this bundle and its parents without throwing
+     * <code>MissingResourceException</code>.
+     *
+     * @return The value, or <code>null</code> if none.
+     */
+    String find(String key) {
+        String value = get(key);
+        if (value == null && parent != null) {
+            value = parent instanceof CatalogBundle
+                    ? ((CatalogBundle) parent).find(key)
+                    : (parent.containsKey(key) ? parent.getString(key) : null);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return find(key) != null;
+    }
+
+    @Override
+    public Enumeration<String> getKeys() {
+        Set<String> keys = new LinkedHashSet<>(handleKeySet());
+        if (parent != null) {
+            keys.addAll(parent.keySet());
+        }
+        return Collections.enumeration(keys);
+    }
+
+    @Override
+    protected Object handleGetObject(String key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return get(key);
+    }
+
+    @Override
+    protected Set<String> handleKeySet() {
+        Set<String> keys = new LinkedHashSet<>();
+        for (MessageSourceCache.Holder holder : holders) {
+            keys.addAll(holder.keySet());
+        }
+        return keys;
+    }
+
+    /**
+     * Fetches the messages again in the background if they are due, for
+     * lookups that do not go through the bundle, such as those of
+     * compiled message patterns.
+     */
+    void refreshIfDue() {
+        localeList.refreshIfDue();
+        for (MessageSourceCache.Holder holder : holders) {
+            holder.refreshIfDue();
+        }
+    }
+
+    private String get(String key) {
+        localeList.refreshIfDue();
+        for (MessageSourceCache.Holder holder : holders) {
+            String value = holder.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
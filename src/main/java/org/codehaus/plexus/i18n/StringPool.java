@@ -0,0 +1,120 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shares equal strings, so that keys repeated in every locale of a
+ * bundle and values that are the same across locales and bundles are
+ * kept once.  Strings are only held weakly, and drop out of the pool
+ * when no bundle uses them any more.  The pool is guarded by a lock
+ * rather than a monitor, so that virtual threads loading bundles at the
+ * same time do not pin their carrier threads while waiting for it.
+ */
+final class StringPool {
+    /**
+     * The approximate size in bytes of a <code>String</code> and the
+     * header of its array.
+     */
+    private static final int STRING_OVERHEAD = 40;
+
+    /**
+     * The bytes taken by a Latin-1 character: one as of Java 9, which
+     * stores such strings compactly unless told not to, and two before.
+     */
+    static final int LATIN1_CHAR_BYTES =
+            System.getProperty("java.specification.version", "").startsWith("1.") ? 2 : 1;
+
+    private final Map<String, WeakReference<String>> strings = new WeakHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LongAdder deduplicated = new LongAdder();
+
+    private final LongAdder deduplicatedBytes = new LongAdder();
+
+    /**
+     * @return The pooled string equal to <code>s</code>, which is
+     *         pooled if there is none yet.
+     */
+    String intern(String s) {
+        String pooled;
+        lock.lock();
+        try {
+            WeakReference<String> ref = strings.get(s);
+            pooled = ref != null ? ref.get() : null;
+            if (pooled == null) {
+                strings.put(s, new WeakReference<>(s));
+                return s;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (pooled != s) {
+            deduplicated.increment();
+            deduplicatedBytes.add(sizeOf(s));
+        }
+        return pooled;
+    }
+
+    /**
+     * @return The number of strings in the pool.
+     */
+    int size() {
+        lock.lock();
+        try {
+            return strings.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return How many strings were replaced by a pooled one, ever.
+     */
+    long getDeduplicatedCount() {
+        return deduplicated.sum();
+    }
+
+    /**
+     * @return The estimated number of bytes the replaced strings took.
+     *         The count only grows: it is not the current saving, as
+     *         the pooled strings and the bundles sharing them may since
+     *         have been collected.
+     */
+    long getDeduplicatedBytes() {
+        return deduplicatedBytes.sum();
+    }
+
+    /**
+     * Estimates the size of a string, with two bytes per character, or
+     * {@link #LATIN1_CHAR_BYTES} for Latin-1 text.
+     */
+    private static long sizeOf(String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) > 0xff) {
+                return STRING_OVERHEAD + 2L * length;
+            }
+        }
+        return STRING_OVERHEAD + (long) LATIN1_CHAR_BYTES * length;
+    }
+}
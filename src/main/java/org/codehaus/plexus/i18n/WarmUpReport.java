@@ -0,0 +1,92 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of {@link DefaultI18N#warmUp()}: how long each bundle
+ * took to load, and which bundles were not found.  Bundles are named
+ * by bundle name and locale, separated by an underscore.
+ */
+public final class WarmUpReport {
+    private final Map<String, Long> loadNanos;
+
+    private final Set<String> missing;
+
+    private final long elapsedNanos;
+
+    WarmUpReport(Map<String, Long> loadNanos, Set<String> missing, long elapsedNanos) {
+        this.loadNanos = Collections.unmodifiableMap(new TreeMap<>(loadNanos));
+        this.missing = Collections.unmodifiableSet(new TreeSet<>(missing));
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return The time in nanoseconds it took to load each bundle along
+     *         with the list of default bundles, by bundle.
+     */
+    public Map<String, Long> getLoadNanos() {
+        return loadNanos;
+    }
+
+    /**
+     * @return The bundles that were not found.
+     */
+    public Set<String> getMissing() {
+        return missing;
+    }
+
+    /**
+     * @return The time in nanoseconds the whole warm-up took.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        long slowest = 0;
+        String slowestName = null;
+        for (Map.Entry<String, Long> e : loadNanos.entrySet()) {
+            if (e.getValue() > slowest) {
+                slowest = e.getValue();
+                slowestName = e.getKey();
+            }
+        }
+        StringBuilder buf = new StringBuilder();
+        buf.append(loadNanos.size())
+                .append(" bundles loaded in ")
+                .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .append(" ms");
+        if (slowestName != null) {
+            buf.append(", slowest ")
+                    .append(slowestName)
+                    .append(" (")
+                    .append(TimeUnit.NANOSECONDS.toMillis(slowest))
+                    .append(" ms)");
+        }
+        if (!missing.isEmpty()) {
+            buf.append(", not found ").append(missing);
+        }
+        return buf.toString();
+    }
+}
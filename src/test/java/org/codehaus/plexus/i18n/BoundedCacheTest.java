@@ -0,0 +1,52 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests the eviction of the small bounded cache.
+ */
+class BoundedCacheTest {
+    @Test
+    void hitEntriesSurviveOverflow() {
+        BoundedCache<String, String> cache = new BoundedCache<>(8);
+        for (int i = 0; i < 8; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value3", cache.get("key3"));
+            assertEquals("value5", cache.get("key5"));
+            cache.put("other" + i, "x");
+        }
+        assertEquals(8, cache.size());
+        assertEquals("value3", cache.get("key3"));
+        assertEquals("value5", cache.get("key5"));
+        assertNull(cache.get("key0"));
+        assertEquals("x", cache.get("other999"));
+    }
+
+    @Test
+    void zeroSizeDisablesCaching() {
+        BoundedCache<String, String> cache = new BoundedCache<>(0);
+        cache.put("key", "value");
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+    }
+}
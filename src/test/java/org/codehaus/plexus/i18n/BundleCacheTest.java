@@ -0,0 +1,451 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListResourceBundle;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stress tests the concurrent bundle cache.
+ */
+class BundleCacheTest {
+    private static final int THREADS = 16;
+
+    private static final Locale[] LOCALES = {Locale.ROOT, Locale.ENGLISH, Locale.FRENCH, Locale.GERMAN, Locale.ITALIAN};
+
+    @Test
+    void concurrentRequestsLoadOnce() throws Exception {
+        BundleCache cache = new BundleCache();
+        ConcurrentHashMap<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            loads.computeIfAbsent(bundleName + '_' + locale, k -> new AtomicInteger()).incrementAndGet();
+            sleep();
+            return new TestBundle(locale);
+        };
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                start.await();
+                for (int i = 0; i < 200; i++) {
+                    String bundleName = "bundle" + ((i + offset) % 10);
+                    Locale locale = LOCALES[(i * 7 + offset) % LOCALES.length];
+                    ResourceBundle rb = cache.get(bundleName, locale, loader);
+                    assertEquals(locale, rb.getLocale());
+                    assertSame(rb, cache.get(bundleName, locale, loader));
+                }
+                return null;
+            });
+        }
+        runAll(tasks, start);
+
+        assertEquals(10 * LOCALES.length, loads.size());
+        for (AtomicInteger count : loads.values()) {
+            assertEquals(1, count.get());
+        }
+    }
+
+    @Test
+    void asyncRequestsShareOneLoad() throws Exception {
+        BundleCache cache = new BundleCache();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TestBundle(locale);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<ResourceBundle> first = cache.getAsync("bundle", Locale.FRENCH, loader, executor);
+            CompletableFuture<ResourceBundle> second = cache.getAsync("bundle", Locale.FRENCH, loader, executor);
+            assertFalse(first.isDone());
+            release.countDown();
+
+            assertSame(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+            assertSame(first.get(), cache.get("bundle", Locale.FRENCH, loader));
+            assertEquals(1, loads.get());
+
+            BundleCache.Loader missing = (bundleName, locale) -> {
+                throw new MissingResourceException("missing", bundleName, "");
+            };
+            ExecutionException e = assertThrows(
+                    ExecutionException.class,
+                    () -> cache.getAsync("missing", Locale.ROOT, missing, executor)
+                            .get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof MissingResourceException);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failedLoadsAreRetried() {
+        BundleCache cache = new BundleCache();
+        AtomicInteger attempts = new AtomicInteger();
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            attempts.incrementAndGet();
+            throw new MissingResourceException("missing", bundleName, "");
+        };
+
+        assertThrows(MissingResourceException.class, () -> cache.get("missing", Locale.ROOT, loader));
+        assertThrows(MissingResourceException.class, () -> cache.get("missing", Locale.ROOT, loader));
+        assertEquals(2, attempts.get());
+        assertNull(cache.getIfPresent("missing", Locale.ROOT));
+    }
+
+    @Test
+    void missingBundlesAreRemembered() throws Exception {
+        BundleCache cache = new BundleCache();
+        cache.setMissingBundleTtl(50);
+        AtomicInteger attempts = new AtomicInteger();
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            attempts.incrementAndGet();
+            throw new MissingResourceException("missing", bundleName, "");
+        };
+
+        MissingResourceException first =
+                assertThrows(MissingResourceException.class, () -> cache.get("missing", Locale.ROOT, loader));
+        MissingResourceException second =
+                assertThrows(MissingResourceException.class, () -> cache.get("missing", Locale.ROOT, loader));
+        assertSame(first, second);
+        assertEquals(1, attempts.get());
+
+        Thread.sleep(100);
+        assertThrows(MissingResourceException.class, () -> cache.get("missing", Locale.ROOT, loader));
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void rememberedMissingBundlesAreBounded() {
+        BundleCache cache = new BundleCache();
+        cache.setMissingBundleTtl(-1);
+        cache.setMaxEntries(2);
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            throw new MissingResourceException("missing", bundleName, "");
+        };
+
+        for (int i = 0; i < 10; i++) {
+            Locale locale = new Locale("x" + i);
+            assertThrows(MissingResourceException.class, () -> cache.get("missing", locale, loader));
+        }
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.getEvictionCount() + cache.getRejectionCount());
+    }
+
+    @Test
+    void rememberedMissingBundlesOfAnUnboundedCacheAreBounded() {
+        BundleCache cache = new BundleCache();
+        cache.setMissingBundleTtl(-1);
+        AtomicInteger attempts = new AtomicInteger();
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            attempts.incrementAndGet();
+            throw new MissingResourceException("missing", bundleName, "");
+        };
+
+        int count = BundleCache.MAX_MISSING_BUNDLES + 100;
+        for (int i = 0; i < count; i++) {
+            Locale locale = new Locale("x" + i);
+            assertThrows(MissingResourceException.class, () -> cache.get("missing", locale, loader));
+        }
+        assertEquals(BundleCache.MAX_MISSING_BUNDLES, cache.getMissingBundleCount());
+        assertEquals(0, cache.size());
+
+        // The latest are remembered, the oldest are not.
+        assertThrows(MissingResourceException.class, () -> cache.get("missing", new Locale("x" + (count - 1)), loader));
+        assertEquals(count, attempts.get());
+        assertThrows(MissingResourceException.class, () -> cache.get("missing", new Locale("x0"), loader));
+        assertEquals(count + 1, attempts.get());
+        assertEquals(BundleCache.MAX_MISSING_BUNDLES, cache.getMissingBundleCount());
+    }
+
+    @Test
+    void expiredMissingBundlesAreSwept() throws Exception {
+        BundleCache cache = new BundleCache();
+        cache.setMissingBundleTtl(20);
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            if (bundleName.equals("missing")) {
+                throw new MissingResourceException("missing", bundleName, "");
+            }
+            return new TestBundle(locale);
+        };
+
+        for (int i = 0; i < 10; i++) {
+            Locale locale = new Locale("x" + i);
+            assertThrows(MissingResourceException.class, () -> cache.get("missing", locale, loader));
+        }
+        assertEquals(10, cache.getMissingBundleCount());
+
+        Thread.sleep(50);
+        // Requests for other bundles sweep them.
+        cache.get("bundle", Locale.ROOT, loader);
+        cache.get("bundle", Locale.ROOT, loader);
+        assertEquals(0, cache.getMissingBundleCount());
+        assertFalse(cache.contains("missing"));
+    }
+
+    @Test
+    void requestedLocalesShareTheBundleFound() {
+        BundleCache cache = new BundleCache();
+        cache.setMaxEntries(100);
+        AtomicInteger loads = new AtomicInteger();
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            loads.incrementAndGet();
+            return new TestBundle(Locale.ROOT);
+        };
+
+        ResourceBundle rb = cache.get("bundle", new Locale("x0"), loader);
+        assertSame(rb, cache.get("bundle", new Locale("x0"), loader));
+        assertSame(rb, cache.get("bundle", Locale.ROOT, loader));
+        assertEquals(1, loads.get());
+        for (int i = 1; i < 1000; i++) {
+            cache.get("bundle", new Locale("x" + i), loader);
+        }
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getEvictionCount());
+        assertSame(rb, cache.getIfPresent("bundle", new Locale("x999")));
+    }
+
+    @Test
+    void requestedLocalesAreForgottenWithTheirBundle() {
+        BundleCache cache = new BundleCache();
+        cache.setMaxEntries(100);
+        BundleCache.Loader loader = (bundleName, locale) -> new TestBundle(Locale.ROOT);
+
+        cache.get("bundle", new Locale("x0"), loader);
+        assertTrue(cache.hasResolvedLocales("bundle"));
+
+        // Evicts all bundles.
+        cache.setMaxBytes(1);
+        assertFalse(cache.contains("bundle"));
+        assertFalse(cache.hasResolvedLocales("bundle"));
+    }
+
+    @Test
+    void boundedCacheKeepsPopularBundles() throws Exception {
+        BundleCache cache = new BundleCache();
+        cache.setMaxEntries(2);
+        List<String> evicted = new ArrayList<>();
+        cache.setRemovalListener((bundleName, locale, expired) -> evicted.add(bundleName + ':' + expired));
+        BundleCache.Loader loader = (bundleName, locale) -> new TestBundle(locale);
+
+        ResourceBundle hot = cache.get("hot", Locale.FRENCH, loader);
+        cache.get("cold", Locale.FRENCH, loader);
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(2);
+            assertSame(hot, cache.get("hot", Locale.FRENCH, loader));
+        }
+        assertEquals(2, cache.size());
+
+        // Requested once, as the least recently used bundle was.
+        assertEquals(Locale.FRENCH, cache.get("new", Locale.FRENCH, loader).getLocale());
+        assertNull(cache.getIfPresent("new", Locale.FRENCH));
+        assertEquals(1, cache.getRejectionCount());
+        assertEquals(2, cache.size());
+
+        // Requested again, more often than the least recently used one.
+        cache.get("new", Locale.FRENCH, loader);
+        assertNotNull(cache.getIfPresent("new", Locale.FRENCH));
+        assertNull(cache.getIfPresent("cold", Locale.FRENCH));
+        assertSame(hot, cache.getIfPresent("hot", Locale.FRENCH));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(Collections.singletonList("cold:false"), evicted);
+        assertEquals(2, cache.size());
+        assertTrue(cache.getEstimatedBytes() > 0);
+
+        cache.setMaxBytes(1);
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedBytes());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test
+    void idleBundlesExpire() throws Exception {
+        BundleCache cache = new BundleCache();
+        AtomicInteger loads = new AtomicInteger();
+        BundleCache.Loader loader = (bundleName, locale) -> {
+            loads.incrementAndGet();
+            return new TestBundle(locale);
+        };
+        cache.get("bundle", Locale.FRENCH, loader);
+        cache.setExpireAfterAccess(50);
+        List<String> expired = new ArrayList<>();
+        cache.setRemovalListener((bundleName, locale, idle) -> expired.add(bundleName + '_' + locale + ':' + idle));
+        assertEquals(1, cache.size());
+
+        Thread.sleep(100);
+        assertNull(cache.getIfPresent("bundle", Locale.FRENCH));
+        assertEquals(1, cache.getExpirationCount());
+        assertEquals(Collections.singletonList("bundle_fr:true"), expired);
+        assertFalse(cache.contains("bundle"));
+        assertEquals(0, cache.size());
+
+        cache.get("bundle", Locale.FRENCH, loader);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void boundedCacheUnderContention() throws Exception {
+        BundleCache cache = new BundleCache();
+        cache.setMaxEntries(8);
+        cache.setExpireAfterAccess(TimeUnit.MINUTES.toMillis(1));
+        BundleCache.Loader loader = (bundleName, locale) -> new TestBundle(locale);
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                start.await();
+                for (int i = 0; i < 2000; i++) {
+                    // A few popular bundles among many rarely used ones.
+                    String bundleName = i % 2 == 0 ? "popular" + (i % 4) : "tenant" + (i * 31 + offset) % 500;
+                    Locale locale = LOCALES[(i + offset) % LOCALES.length];
+                    assertEquals(locale, cache.get(bundleName, locale, loader).getLocale());
+                }
+                return null;
+            });
+        }
+        runAll(tasks, start);
+
+        assertTrue(cache.size() <= 8, "size " + cache.size());
+        assertTrue(cache.getEvictionCount() + cache.getRejectionCount() > 0);
+    }
+
+    @Test
+    void boundedLookups() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+        i18n.setBundleCacheMaxEntries(3);
+        I18NStatistics statistics = new I18NStatistics();
+        i18n.setListener(statistics);
+
+        for (int i = 0; i < 20; i++) {
+            for (String language : new String[] {"fr", "de", "it"}) {
+                Locale locale = new Locale(language);
+                assertEquals("[" + language + "] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", locale, "key1"));
+                assertEquals("[] value4", i18n.getString("org.codehaus.plexus.i18n.i18n", locale, "key4"));
+            }
+        }
+        assertTrue(i18n.getBundleCacheSize() <= 3);
+        assertTrue(i18n.getBundleEvictionCount() + i18n.getBundleRejectionCount() > 0);
+        assertEquals(i18n.getBundleEvictionCount(), statistics.getBundlesEvicted());
+    }
+
+    @Test
+    void concurrentLookups() throws Exception {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+        String[][] expected = {
+            {"en", "[] value1", "[] value4"},
+            {"fr", "[fr] value1", "[] value4"},
+            {"de", "[de] value1", "[] value4"},
+            {"it", "[it] value1", "[] value4"}
+        };
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int offset = t;
+            tasks.add(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    String[] row = expected[(i + offset) % expected.length];
+                    Locale locale = new Locale(row[0]);
+                    assertEquals(row[1], i18n.getString("org.codehaus.plexus.i18n.i18n", locale, "key1"));
+                    assertEquals(row[2], i18n.getString("org.codehaus.plexus.i18n.i18n", locale, "key4"));
+                }
+                return null;
+            });
+        }
+        runAll(tasks, start);
+    }
+
+    private static void runAll(List<Callable<Void>> tasks, CountDownLatch start) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestBundle extends ListResourceBundle {
+        private final Locale locale;
+
+        TestBundle(Locale locale) {
+            this.locale = locale;
+        }
+
+        @Override
+        public Locale getLocale() {
+            return locale;
+        }
+
+        @Override
+        protected Object[][] getContents() {
+            return new Object[][] {{"key", locale.toString()}};
+        }
+    }
+}
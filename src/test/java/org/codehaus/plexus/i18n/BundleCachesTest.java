@@ -0,0 +1,150 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests that bundles are cached by class loader, and dropped with it.
+ */
+class BundleCachesTest {
+    private static final String BUNDLE = "realm.Messages";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void bundlesAreCachedPerClassLoader() throws Exception {
+        DefaultI18N i18n = new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n"});
+        try (URLClassLoader first = newRealm("first");
+                URLClassLoader second = newRealm("second")) {
+            ResourceBundle rb = i18n.getBundle(BUNDLE, Locale.FRENCH, first);
+            assertEquals("first fr", rb.getString("greeting"));
+            assertEquals("first", rb.getString("name"));
+            assertSame(rb, i18n.getBundle(BUNDLE, Locale.FRENCH, first));
+            assertEquals("second fr", i18n.getBundle(BUNDLE, Locale.FRENCH, second).getString("greeting"));
+            assertEquals("second", i18n.getBundle(BUNDLE, Locale.GERMAN, second).getString("greeting"));
+
+            // Not visible to the class loader of the component.
+            assertThrows(MissingResourceException.class, () -> i18n.getBundle(BUNDLE, Locale.FRENCH));
+            assertSame(
+                    i18n.getBundle("org.codehaus.plexus.i18n.i18n", Locale.FRENCH),
+                    i18n.getBundle("org.codehaus.plexus.i18n.i18n", Locale.FRENCH, null));
+        }
+    }
+
+    @Test
+    void cachesOfCollectedClassLoadersAreDropped() throws Exception {
+        BundleCaches caches = new BundleCaches(cache -> {});
+        ResourceBundle rb = loadFromRealm(caches);
+        assertEquals(1, caches.size());
+
+        for (int i = 0; i < 50 && caches.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertEquals(0, caches.size());
+        // The bundles outlive their class loader.
+        assertEquals("realm fr", rb.getString("greeting"));
+    }
+
+    @Test
+    void classLoadersOfBundlesThatCannotBeCopiedAreCollected() throws Exception {
+        DefaultI18N i18n = new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n"});
+        WeakReference<ClassLoader> realm = loadClassBundleFromRealm(i18n);
+
+        for (int i = 0; i < 50 && realm.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull(realm.get());
+        assertEquals("[] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.ROOT, "key1"));
+    }
+
+    /**
+     * Loads a bundle from a class loader that is not referenced once
+     * this returns.
+     */
+    private ResourceBundle loadFromRealm(BundleCaches caches) throws IOException {
+        try (URLClassLoader realm = newRealm("realm")) {
+            ResourceBundle rb = caches.get(realm)
+                    .get(BUNDLE, Locale.FRENCH, (name, locale) ->
+                            ResourceBundle.getBundle(name, locale, realm, BundleControl.CACHING));
+            assertEquals("realm fr", rb.getString("greeting"));
+            assertSame(caches.get(realm), caches.get(realm));
+            return rb;
+        }
+    }
+
+    /**
+     * Loads a class bundle that does not list all its keys, so that it
+     * cannot be copied, from a class loader that is not referenced once
+     * this returns.
+     *
+     * @return The class loader.
+     */
+    private WeakReference<ClassLoader> loadClassBundleFromRealm(DefaultI18N i18n) throws IOException {
+        Path root = directory.resolve("classes");
+        Path file = root.resolve("org/codehaus/plexus/i18n/ComputedBundle.class");
+        Files.createDirectories(file.getParent());
+        try (InputStream in = ComputedBundle.class.getResourceAsStream("ComputedBundle.class")) {
+            Files.copy(in, file);
+        }
+        try (URLClassLoader realm = new URLClassLoader(new URL[] {root.toUri().toURL()}, null)) {
+            ResourceBundle rb = i18n.getBundle("org.codehaus.plexus.i18n.ComputedBundle", Locale.ROOT, realm);
+            assertSame(realm, rb.getClass().getClassLoader());
+            assertEquals("[computed] value2", rb.getString("computed.key2"));
+            // ResourceBundle only keeps its bundles softly, and the owner
+            // of a realm may clear them.
+            ResourceBundle.clearCache(realm);
+            return new WeakReference<>(realm);
+        }
+    }
+
+    /**
+     * @return A class loader, without parent, having the bundle with
+     *         values naming it.
+     */
+    private URLClassLoader newRealm(String name) throws IOException {
+        Path root = Files.createDirectories(directory.resolve(name).resolve("realm"));
+        write(root.resolve("Messages.properties"), "greeting=" + name + "\nname=" + name + "\n");
+        write(root.resolve("Messages_fr.properties"), "greeting=" + name + " fr\n");
+        return new URLClassLoader(new URL[] {root.getParent().toUri().toURL()}, null);
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,208 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests compiling bundles into catalogs and reading them back.
+ */
+class BundleCompilerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void catalogMatchesPropertiesBundles() throws Exception {
+        Path properties = Paths.get(BundleCompilerTest.class
+                .getResource("/org/codehaus/plexus/i18n/i18n.properties")
+                .toURI());
+        Path classes = properties.resolveSibling("../../../..").normalize();
+        Path file = directory.resolve("i18n.catalog");
+        Map<String, List<String>> manifest = BundleCompiler.compile(
+                file,
+                Arrays.asList("org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"),
+                Collections.singletonList(classes));
+
+        assertEquals(Arrays.asList("", "de", "fr", "it"), manifest.get("org.codehaus.plexus.i18n.i18n"));
+        // BarBundle has class files as well.
+        assertFalse(manifest.containsKey("org.codehaus.plexus.i18n.BarBundle"));
+
+        Catalog catalog = Catalog.read(ByteBuffer.wrap(Files.readAllBytes(file)));
+        assertEquals(
+                new HashSet<>(Arrays.asList(Locale.ROOT, Locale.GERMAN, Locale.FRENCH, Locale.ITALIAN)),
+                catalog.getLocales("org.codehaus.plexus.i18n.i18n"));
+        for (Locale locale : catalog.getLocales("org.codehaus.plexus.i18n.i18n")) {
+            ResourceBundle expected =
+                    ResourceBundle.getBundle("org.codehaus.plexus.i18n.i18n", locale, BundleControl.CACHING);
+            ResourceBundle actual = catalog.getBundle("org.codehaus.plexus.i18n.i18n", locale, BundleControl.CACHING);
+            assertEquals(expected.getLocale(), actual.getLocale());
+            assertEquals(expected.keySet(), actual.keySet());
+            for (String key : expected.keySet()) {
+                assertEquals(expected.getString(key), actual.getString(key), key);
+            }
+        }
+    }
+
+    @Test
+    void lookups() throws Exception {
+        write(
+                "com/example/Messages.properties",
+                "greeting = Hello\nfarewell = Bye\nunicode = \\u00e9t\\u00e9 \\ud83d\\ude00");
+        write("com/example/Messages_fr.properties", "greeting = Bonjour");
+        write("com/example/Messages_fr_CA.properties", "greeting = Allo");
+        write("com/example/application.properties", "port = 8080");
+        Path file = directory.resolve("out/i18n.catalog");
+        Map<String, List<String>> manifest = BundleCompiler.compile(
+                file, Collections.singletonList("com.example.Messages"), Collections.singletonList(directory));
+        assertEquals(Collections.singleton("com.example.Messages"), manifest.keySet());
+        Catalog catalog = Catalog.read(ByteBuffer.wrap(Files.readAllBytes(file)));
+
+        ResourceBundle rb = catalog.getBundle("com.example.Messages", new Locale("fr", "CA"), BundleControl.CACHING);
+        assertEquals(new Locale("fr", "CA"), rb.getLocale());
+        assertEquals("Allo", rb.getString("greeting"));
+        assertEquals("Bye", rb.getString("farewell"));
+        assertEquals("\u00e9t\u00e9 \ud83d\ude00", rb.getString("unicode"));
+        assertTrue(rb.containsKey("farewell"));
+        assertFalse(rb.containsKey("no.such.key"));
+        assertEquals(new HashSet<>(Arrays.asList("greeting", "farewell", "unicode")), rb.keySet());
+
+        rb = catalog.getBundle("com.example.Messages", Locale.GERMAN, BundleControl.CACHING);
+        assertEquals(Locale.ROOT, rb.getLocale());
+        assertThrows(
+                MissingResourceException.class,
+                () -> catalog.getBundle("com.example.Other", Locale.GERMAN, BundleControl.CACHING));
+
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setCatalogs(Collections.singletonList(catalog));
+        assertEquals("Bonjour", i18n.getString("com.example.Messages", Locale.FRANCE, "greeting"));
+        assertEquals("Bye", i18n.getString("com.example.Messages", Locale.FRANCE, "farewell"));
+        assertEquals("no.such.key", i18n.getString("com.example.Messages", Locale.FRANCE, "no.such.key"));
+    }
+
+    @Test
+    void mappedCatalogs() throws Exception {
+        write("com/example/Messages.properties", "greeting = Hello\nfarewell = Bye");
+        write("com/example/Messages_fr.properties", "greeting = Bonjour");
+        // Not in the temporary directory, as mapped files cannot be
+        // deleted on all platforms.
+        Path file = Files.createTempFile("i18n", ".catalog");
+        file.toFile().deleteOnExit();
+        BundleCompiler.compile(
+                file, Collections.singletonList("com.example.Messages"), Collections.singletonList(directory));
+
+        assertTrue(Catalog.map(file).isOffHeap());
+
+        DefaultI18N i18n = new DefaultI18N(new String[] {"com.example.Messages"});
+        i18n.setCatalogFiles(new String[] {file.toString()});
+        assertEquals("Bonjour", i18n.getString("com.example.Messages", Locale.FRENCH, "greeting"));
+        assertEquals("Bye", i18n.getString("com.example.Messages", Locale.FRENCH, "farewell"));
+        assertEquals("no.such.key", i18n.getString("com.example.Messages", Locale.FRENCH, "no.such.key"));
+        assertArrayEquals(
+                new String[] {"Hello", "Bye"},
+                i18n.getStrings("com.example.Messages", Locale.GERMAN, "greeting", "farewell"));
+    }
+
+    @Test
+    void stringsAreStoredOnce() throws Exception {
+        String value = new String(new char[1000]).replace('\0', 'x');
+        write("a/A.properties", "key = " + value);
+        write("a/A_fr.properties", "key = " + value);
+        write("a/A_de.properties", "key = " + value);
+        Path file = directory.resolve("i18n.catalog");
+        BundleCompiler.compile(file, Collections.singletonList("a.A"), Collections.singletonList(directory));
+
+        assertTrue(Files.size(file) < 2 * value.length(), "Size " + Files.size(file));
+    }
+
+    @Test
+    void invalidCatalogs() {
+        assertThrows(IOException.class, () -> Catalog.read(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5})));
+        ByteBuffer truncated = ByteBuffer.allocate(12);
+        truncated.putInt(Catalog.MAGIC).putInt(Catalog.VERSION).putInt(1);
+        assertThrows(IOException.class, () -> Catalog.read(truncated));
+    }
+
+    @Test
+    void corruptCatalogsAreSkipped() throws Exception {
+        write("com/example/Messages.properties", "greeting = Hello");
+        Path file = directory.resolve("i18n.catalog");
+        BundleCompiler.compile(
+                file, Collections.singletonList("com.example.Messages"), Collections.singletonList(directory));
+        byte[] bytes = Files.readAllBytes(file);
+
+        // The value offset of the only table entry, which is checked
+        // when looked up, and the length of the first string, the
+        // bundle name, which is checked up front.
+        ByteBuffer badOffset = ByteBuffer.wrap(bytes.clone());
+        badOffset.putInt(32, -5);
+        ResourceBundle rb =
+                Catalog.read(badOffset).getBundle("com.example.Messages", Locale.ROOT, BundleControl.CACHING);
+        assertThrows(IllegalStateException.class, () -> rb.getString("greeting"));
+        ByteBuffer badKey = ByteBuffer.wrap(bytes.clone());
+        badKey.putInt(28, bytes.length);
+        ResourceBundle badKeyBundle =
+                Catalog.read(badKey).getBundle("com.example.Messages", Locale.ROOT, BundleControl.CACHING);
+        assertThrows(IllegalStateException.class, badKeyBundle::keySet);
+        ByteBuffer badLength = ByteBuffer.wrap(bytes.clone());
+        badLength.putInt(36, -1);
+        assertThrows(IOException.class, () -> Catalog.read(badLength));
+
+        Files.write(file, badLength.array());
+        DefaultI18N i18n = new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n"});
+        i18n.setCatalogFiles(new String[] {file.toString()});
+        assertEquals("[] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.ROOT, "key1"));
+    }
+
+    @Test
+    void bundleNames() {
+        assertArrayEquals(new String[] {"a.Messages", ""}, BundleCompiler.splitBundleName("a.Messages"));
+        assertArrayEquals(new String[] {"a.Messages", "fr"}, BundleCompiler.splitBundleName("a.Messages_fr"));
+        assertArrayEquals(new String[] {"a.Messages", "de_CH"}, BundleCompiler.splitBundleName("a.Messages_de_CH"));
+        assertArrayEquals(new String[] {"a.my_messages", "fr"}, BundleCompiler.splitBundleName("a.my_messages_fr"));
+        assertArrayEquals(
+                new String[] {"a.Messages", "zh_Hant_TW"}, BundleCompiler.splitBundleName("a.Messages_zh_Hant_TW"));
+        assertArrayEquals(new String[] {"a.Messages", "_US"}, BundleCompiler.splitBundleName("a.Messages__US"));
+        assertArrayEquals(new String[] {"_fr", ""}, BundleCompiler.splitBundleName("_fr"));
+    }
+
+    private void write(String name, String content) throws Exception {
+        Path file = directory.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
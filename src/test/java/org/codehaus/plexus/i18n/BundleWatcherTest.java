@@ -0,0 +1,100 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests the reporting of changed bundle files.
+ */
+class BundleWatcherTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void changesAreBatched() throws Exception {
+        BlockingQueue<Map<String, Set<Locale>>> batches = new LinkedBlockingQueue<>();
+        try (BundleWatcher watcher = new BundleWatcher(batches::add, 300)) {
+            watcher.watch("com.example.Messages", directory);
+
+            write("Messages_fr.properties");
+            write("Messages_de_CH.properties");
+            write("Other.properties");
+
+            Map<String, Set<Locale>> changes = batches.poll(10, TimeUnit.SECONDS);
+            assertNotNull(changes, "No change reported");
+            assertEquals(Collections.singleton("com.example.Messages"), changes.keySet());
+            assertEquals(
+                    new HashSet<>(Arrays.asList(Locale.FRENCH, new Locale("de", "CH"))),
+                    changes.get("com.example.Messages"));
+
+            write("Messages.properties");
+            changes = batches.poll(10, TimeUnit.SECONDS);
+            assertNotNull(changes, "No change reported");
+            assertEquals(Collections.singleton(Locale.ROOT), changes.get("com.example.Messages"));
+        }
+    }
+
+    @Test
+    void sameBundleIsWatchedInEachClassLoader() throws Exception {
+        BlockingQueue<Map<String, Set<Locale>>> batches = new LinkedBlockingQueue<>();
+        Path first = Files.createDirectories(directory.resolve("first").resolve("realm"));
+        Path second = Files.createDirectories(directory.resolve("second").resolve("realm"));
+        try (BundleWatcher watcher = new BundleWatcher(batches::add, 300);
+                URLClassLoader firstLoader = newLoader(first);
+                URLClassLoader secondLoader = newLoader(second)) {
+            watcher.watch("realm.Messages", firstLoader);
+            watcher.watch("realm.Messages", secondLoader);
+
+            write(second.resolve("Messages_fr.properties"));
+            Map<String, Set<Locale>> changes = batches.poll(10, TimeUnit.SECONDS);
+            assertNotNull(changes, "No change reported");
+            assertEquals(Collections.singleton(Locale.FRENCH), changes.get("realm.Messages"));
+        }
+    }
+
+    private static URLClassLoader newLoader(Path packageDirectory) throws Exception {
+        return new URLClassLoader(new URL[] {packageDirectory.getParent().toUri().toURL()}, null);
+    }
+
+    private void write(String fileName) throws Exception {
+        write(directory.resolve(fileName));
+    }
+
+    private static void write(Path file) throws Exception {
+        Files.write(file, "key = value".getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
@@ -0,0 +1,41 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collections;
+import java.util.ListResourceBundle;
+import java.util.Set;
+
+/**
+ * A resource bundle for use in testing that answers a key it does not
+ * list.
+ */
+public class ComputedBundle extends ListResourceBundle {
+    private static final Object[][] CONTENTS = {
+        {"key1", "[] value1"},
+        {"computed.key2", "[computed] value2"}
+    };
+
+    protected Object[][] getContents() {
+        return CONTENTS;
+    }
+
+    @Override
+    protected Set<String> handleKeySet() {
+        return Collections.singleton("key1");
+    }
+}
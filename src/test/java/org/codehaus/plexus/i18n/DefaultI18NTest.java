@@ -56,13 +56,23 @@ package org.codehaus.plexus.i18n;
 
 import javax.inject.Inject;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.concurrent.CompletionException;
 
 import org.codehaus.plexus.testing.PlexusTest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Tests the API of the
@@ -136,6 +146,288 @@ class DefaultI18NTest {
         assertEquals("Thanks jason van zyl!", s8);
     }
 
+    @Test
+    void formatIntoBuffers() throws IOException {
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+
+        StringBuilder builder = new StringBuilder("> ");
+        i18n.formatTo(builder, bundle, Locale.GERMAN, "thanks.message1", "jason", "van zyl");
+        i18n.getStringTo(builder.append(' '), bundle, Locale.GERMAN, "key1");
+        assertEquals("> Danke jason van zyl! [de] value1", builder.toString());
+
+        StringBuffer buffer = new StringBuffer();
+        i18n.formatTo(buffer, bundle, Locale.FRENCH, "thanks.message", "jason");
+        assertEquals("Merci jason!", buffer.toString());
+
+        StringWriter writer = new StringWriter();
+        Object nested = new Object() {
+            @Override
+            public String toString() {
+                StringWriter inner = new StringWriter();
+                try {
+                    i18n.formatTo(inner, bundle, Locale.GERMAN, "thanks.message", "van zyl");
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                return inner.toString();
+            }
+        };
+        i18n.formatTo(writer, bundle, Locale.FRENCH, "thanks.message", nested);
+        assertEquals("Merci Danke van zyl!!", writer.toString());
+    }
+
+    @Test
+    void formattedMessagesAreCachedPerLocale() {
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+        for (int i = 0; i < 2; i++) {
+            assertEquals("Merci jason!", i18n.format(bundle, Locale.FRENCH, "thanks.message", "jason"));
+            assertEquals("Danke jason!", i18n.format(bundle, Locale.GERMAN, "thanks.message", "jason"));
+            assertEquals("Danke van zyl!", i18n.format(bundle, Locale.GERMAN, "thanks.message", "van zyl"));
+        }
+    }
+
+    @Test
+    void acceptLanguageHeadersAreCached() {
+        DefaultI18N i18n = new DefaultI18N();
+        String header = "fr-CA, en;q=0.8";
+
+        assertEquals(new Locale("fr", "CA"), i18n.getLocale(header));
+        assertEquals(new Locale("fr", "CA"), i18n.getLocale(header));
+        assertEquals(Locale.ENGLISH, i18n.getLocale("en"));
+
+        assertEquals(1, i18n.getLocaleCacheHitCount());
+        assertEquals(2, i18n.getLocaleCacheMissCount());
+    }
+
+    @Test
+    void acceptLanguageNegotiation() {
+        DefaultI18N i18n = new DefaultI18N();
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+
+        assertEquals(Locale.GERMAN, i18n.negotiateLocale(bundle, "ja, it;q=0.8, de;q=0.9"));
+        assertEquals(Locale.FRENCH, i18n.negotiateLocale(bundle, "fr-CA, en;q=0.5"));
+        assertEquals(Locale.ITALIAN, i18n.negotiateLocale(bundle, "de;q=0, *;q=0.9, it;q=0.1"));
+        assertEquals(new Locale("ko", "KR"), i18n.negotiateLocale(bundle, "ko-KR, xx"));
+        assertEquals(
+                new Locale("xx"), i18n.negotiateLocale("org.codehaus.plexus.i18n.BarBundle", "ko, xx;q=0.5"));
+        assertEquals(new Locale("ko", "KR"), i18n.negotiateLocale("org.codehaus.plexus.i18n.BarBundle", "ko-KR"));
+
+        assertEquals("[it] value1", i18n.getBundle(bundle, "ja, it;q=0.5").getString("key1"));
+        assertEquals("[] value1", i18n.getBundle(bundle, "ja").getString("key1"));
+    }
+
+    @Test
+    void configuredDefaultLocale() {
+        DefaultI18N i18n = new DefaultI18N();
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+        i18n.setDefaultLocale(Locale.GERMAN);
+
+        assertSame(Locale.GERMAN, i18n.getLocale(null));
+        assertSame(Locale.GERMAN, i18n.getLocale(""));
+        assertEquals("de", i18n.getDefaultLanguage());
+        assertEquals("[de] value1", i18n.getString(bundle, null, "key1"));
+
+        i18n.setDefaultLocale(null);
+        assertEquals(Locale.getDefault(), i18n.getDefaultLocale());
+    }
+
+    @Test
+    void asyncLookups() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+
+        assertEquals("[it] value1", i18n.getStringAsync(bundle, Locale.ITALIAN, "key1").join());
+        assertEquals("[] value4", i18n.getStringAsync(bundle, Locale.ITALIAN, "key4").join());
+        assertTrue(i18n.getStringAsync(bundle, Locale.ITALIAN, "key1").isDone());
+        assertEquals(Locale.ITALIAN, i18n.getBundleAsync(bundle, Locale.ITALIAN).join().getLocale());
+
+        CompletionException e = assertThrows(
+                CompletionException.class,
+                () -> i18n.getStringAsync("org.codehaus.plexus.i18n.NoSuchBundle", Locale.ITALIAN, "key1")
+                        .join());
+        assertTrue(e.getCause() instanceof MissingResourceException);
+
+        i18n.setEmptyBundleForMissing(true);
+        assertEquals(
+                "[it] value1",
+                i18n.getStringAsync("org.codehaus.plexus.i18n.NoSuchBundle", Locale.ITALIAN, "key1")
+                        .join());
+    }
+
+    @Test
+    void fallbackToOtherBundles() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+
+        assertEquals("[] value4", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.ENGLISH, "key4"));
+        assertEquals("[fr] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.FRENCH, "key1"));
+        assertEquals("no.such.key", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.FRENCH, "no.such.key"));
+    }
+
+    @Test
+    void madeUpLocalesShareMessageIndexes() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+
+        for (int i = 0; i < 20000; i++) {
+            assertEquals("[] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", new Locale("x" + i), "key1"));
+        }
+        assertEquals("[fr] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.FRENCH, "key1"));
+        assertEquals(2, i18n.getMessageIndexCount());
+    }
+
+    @Test
+    void keysBundlesDoNotListAreFound() {
+        DefaultI18N i18n = new DefaultI18N();
+
+        String bundle = "org.codehaus.plexus.i18n.ComputedBundle";
+        assertEquals("[] value1", i18n.getString(bundle, Locale.ROOT, "key1"));
+        assertEquals("[computed] value2", i18n.getString(bundle, Locale.ROOT, "computed.key2"));
+        assertEquals("[computed] value2", i18n.getString(bundle, Locale.FRENCH, "computed.key2"));
+        assertEquals("no.such.key", i18n.getString(bundle, Locale.ROOT, "no.such.key"));
+    }
+
+    @Test
+    void emptyBundleForMissing() {
+        DefaultI18N i18n = new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.BarBundle"});
+        i18n.setMissingBundleTtl(-1);
+        i18n.setEmptyBundleForMissing(true);
+
+        String bundle = "org.codehaus.plexus.i18n.NoSuchBundle";
+        assertEquals("[] value1", i18n.getString(bundle, Locale.ENGLISH, "key1"));
+        assertEquals("no.such.key", i18n.getString(bundle, Locale.ENGLISH, "no.such.key"));
+    }
+
+    @Test
+    void statistics() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+        I18NStatistics statistics = new I18NStatistics();
+        i18n.setListener(statistics);
+
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+        i18n.getString(bundle, Locale.ENGLISH, "key1");
+        i18n.getString(bundle, Locale.ENGLISH, "key4");
+        i18n.getString(bundle, Locale.ENGLISH, "no.such.key");
+        i18n.format(bundle, Locale.ENGLISH, "thanks.message", "jason");
+        i18n.getLocale("en-GB, en;q=0.5");
+        i18n.getLocale("en-GB, en;q=0.5");
+
+        assertEquals(2, statistics.getBundleCacheMisses());
+        assertEquals(2, statistics.getBundleLoads());
+        assertEquals(0, statistics.getBundlesNotFound());
+        assertEquals(2, statistics.getKeysFound(0));
+        assertEquals(1, statistics.getKeysFound(1));
+        assertEquals(Long.valueOf(1), statistics.getMissingKeys().get(bundle + "_en"));
+        assertEquals(1, statistics.getMessagesFormatted());
+        assertEquals(1, statistics.getAcceptLanguageParsed());
+        assertEquals(1, statistics.getAcceptLanguageCached());
+    }
+
+    @Test
+    void missingKeysOfManyLocalesAreCountedTogether() {
+        DefaultI18N i18n = new DefaultI18N();
+        I18NStatistics statistics = new I18NStatistics();
+        i18n.setListener(statistics);
+
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+        for (int i = 0; i < 1000; i++) {
+            i18n.getString(bundle, new Locale("x" + i), "no.such.key");
+        }
+        assertEquals(I18NStatistics.MAX_MISSING_KEY_BUNDLES + 1, statistics.getMissingKeys().size());
+        assertEquals(
+                Long.valueOf(1000 - I18NStatistics.MAX_MISSING_KEY_BUNDLES),
+                statistics.getMissingKeys().get(I18NStatistics.OTHER_MISSING_KEYS));
+    }
+
+    @Test
+    void batchLookups() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+
+        assertArrayEquals(
+                new String[] {"[de] value1", "[] value4", "no.such.key"},
+                i18n.getStrings(bundle, Locale.GERMAN, "key1", "key4", "no.such.key"));
+        assertArrayEquals(
+                new String[] {"Danke jason!", "Danke jason van zyl!", "[de] value1"},
+                i18n.formatAll(
+                        bundle,
+                        Locale.GERMAN,
+                        new String[] {"thanks.message", "thanks.message1", "key1"},
+                        new Object[][] {{"jason"}, {"jason", "van zyl"}}));
+    }
+
+    @Test
+    void warmUp() {
+        DefaultI18N i18n =
+                new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n", "org.codehaus.plexus.i18n.BarBundle"});
+        I18NStatistics statistics = new I18NStatistics();
+        i18n.setListener(statistics);
+        i18n.setWarmUpLocales(new String[] {"de", "ko-KR"});
+
+        WarmUpReport report = i18n.warmUp().join();
+        assertEquals(
+                new HashSet<>(Arrays.asList(
+                        "org.codehaus.plexus.i18n.i18n_de",
+                        "org.codehaus.plexus.i18n.i18n_ko_KR",
+                        "org.codehaus.plexus.i18n.BarBundle_de",
+                        "org.codehaus.plexus.i18n.BarBundle_ko_KR")),
+                report.getLoadNanos().keySet());
+        assertTrue(report.getMissing().isEmpty());
+
+        long loads = statistics.getBundleLoads();
+        assertEquals("[de] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.GERMAN, "key1"));
+        assertEquals(
+                "[ko] value3", i18n.getString("org.codehaus.plexus.i18n.BarBundle", new Locale("ko", "KR"), "key3"));
+        assertEquals(loads, statistics.getBundleLoads());
+    }
+
+    @Test
+    void settingWarmUpLocalesWarmsThemUp() {
+        DefaultI18N i18n = new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n"});
+        I18NStatistics statistics = new I18NStatistics();
+        i18n.setListener(statistics);
+        i18n.setWarmUpBlocking(true);
+        i18n.setWarmUpLocales(new String[] {"de"});
+
+        long loads = statistics.getBundleLoads();
+        assertTrue(loads > 0);
+        assertEquals("[de] value1", i18n.getString("org.codehaus.plexus.i18n.i18n", Locale.GERMAN, "key1"));
+        assertEquals(loads, statistics.getBundleLoads());
+    }
+
+    @Test
+    void warmUpAllLocales() {
+        DefaultI18N i18n = new DefaultI18N(new String[] {"org.codehaus.plexus.i18n.i18n"});
+        i18n.setWarmUpLocales(new String[] {DefaultI18N.ALL_LOCALES});
+
+        WarmUpReport report = i18n.warmUp().join();
+        assertEquals(
+                new HashSet<>(Arrays.asList(
+                        "org.codehaus.plexus.i18n.i18n_",
+                        "org.codehaus.plexus.i18n.i18n_de",
+                        "org.codehaus.plexus.i18n.i18n_fr",
+                        "org.codehaus.plexus.i18n.i18n_it")),
+                report.getLoadNanos().keySet());
+    }
+
+    @Test
+    void equalStringsAreShared() {
+        DefaultI18N i18n = new DefaultI18N();
+        String bundle = "org.codehaus.plexus.i18n.i18n";
+
+        assertSame(
+                i18n.getString(bundle, Locale.GERMAN, "thanks.message1"),
+                i18n.getString(bundle, Locale.GERMAN, "thanks.message2"));
+        assertSame(
+                i18n.getString(bundle, Locale.ITALIAN, "thanks.message1"),
+                i18n.getString(bundle, Locale.ITALIAN, "thanks.message2"));
+        assertTrue(i18n.getDeduplicatedStringCount() > 0);
+        assertTrue(i18n.getDeduplicatedBytes() > 0);
+    }
+
     @Test
     void localizedMessagesWithNonStandardLocale() {
         String s0 = i18n.getString("name", new Locale("xx"));
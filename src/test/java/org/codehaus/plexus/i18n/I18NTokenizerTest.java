@@ -58,7 +58,10 @@ import java.util.Locale;
 
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test case for the locale tokenizer.
@@ -78,4 +81,61 @@ class I18NTokenizerTest {
         locale = tok.next();
         assertEquals("TW", locale.getCountry(), "Either wrong country or order parsing: " + locale);
     }
+
+    @Test
+    void equalQualitiesKeepHeaderOrder() {
+        ParsedAcceptLanguage parsed = ParsedAcceptLanguage.parse("de;q=0.5, fr, it;q=0.5, en");
+        assertArrayEquals(
+                new Locale[] {Locale.FRENCH, Locale.ENGLISH, Locale.GERMAN, Locale.ITALIAN}, parsed.getLocales());
+        assertEquals(0.5f, parsed.getQuality(3));
+    }
+
+    @Test
+    void malformedElements() {
+        ParsedAcceptLanguage parsed = ParsedAcceptLanguage.parse(" ,, en ;q= , fr;q=abc ,de-AT;q=.3, it;q=5e-1");
+        assertArrayEquals(
+                new Locale[] {new Locale(""), Locale.ENGLISH, Locale.FRENCH, Locale.ITALIAN, new Locale("de", "AT")},
+                parsed.getLocales());
+        assertArrayEquals(new Float[] {1.0f, 1.0f, 1.0f, 0.5f, 0.3f}, toObjects(parsed.getQualities()));
+    }
+
+    @Test
+    void qualitiesMatchFloatParsing() {
+        for (int i = 0; i <= 1000; i++) {
+            String quality = (i / 1000) + "." + String.valueOf(1000 + i % 1000).substring(1);
+            ParsedAcceptLanguage parsed = ParsedAcceptLanguage.parse("en;q=" + quality);
+            assertEquals(Float.parseFloat(quality), parsed.getQuality(0), quality);
+        }
+    }
+
+    @Test
+    void longHeader() {
+        StringBuilder header = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            header.append("l").append(i).append(";q=0.").append(i % 10).append(',');
+        }
+        I18NTokenizer tok = new I18NTokenizer(header.toString());
+        int count = 0;
+        String previous = null;
+        while (tok.hasNext()) {
+            String language = tok.next().getLanguage();
+            if (previous != null) {
+                int p = Integer.parseInt(previous.substring(1));
+                int c = Integer.parseInt(language.substring(1));
+                assertTrue(p % 10 > c % 10 || (p % 10 == c % 10 && p < c), previous + " before " + language);
+            }
+            previous = language;
+            count++;
+        }
+        assertEquals(100, count);
+        assertFalse(tok.hasNext());
+    }
+
+    private static Float[] toObjects(float[] values) {
+        Float[] objects = new Float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            objects[i] = values[i];
+        }
+        return objects;
+    }
 }
@@ -0,0 +1,112 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.PropertyResourceBundle;
+import java.util.ResourceBundle;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that lazily loaded properties bundles read files as
+ * <code>PropertyResourceBundle</code> does.
+ */
+class LazyPropertiesBundleTest {
+    private static final String PROPERTIES = "# comment\\\n"
+            + "! other comment\n"
+            + "\n"
+            + "   \t\n"
+            + "plain=value\n"
+            + "  indented : value with spaces  \n"
+            + "spaced   =   value\n"
+            + "colon:value\n"
+            + "whitespace separated value\n"
+            + "equals = = value\n"
+            + "empty=\n"
+            + "keyonly\n"
+            + "escaped\\ key\\=\\:=value\n"
+            + "escapes = tab\\tnewline\\nreturn\\rformfeed\\fbackslash\\\\ other\\q\n"
+            + "unicode = \\u00e9t\\u00e9 \\u20AC\n"
+            + "continued = one \\\n    two \\\r\n\t three\\\r  four\n"
+            + "even = backslashes\\\\\n"
+            + "next = line\r"
+            + "duplicate = first\n"
+            + "duplicate = second\n"
+            + "  # comment after whitespace\n"
+            + "value#hash = a # b ! c\n"
+            + "last = no newline \\";
+
+    @Test
+    void sameAsPropertyResourceBundle() throws Exception {
+        byte[] bytes = PROPERTIES.getBytes(StandardCharsets.ISO_8859_1);
+        ResourceBundle expected = new PropertyResourceBundle(new ByteArrayInputStream(bytes));
+        ResourceBundle actual = LazyPropertiesBundle.of(bytes, new StringPool());
+
+        assertEquals(expected.keySet(), actual.keySet());
+        for (String key : expected.keySet()) {
+            assertEquals(expected.getString(key), actual.getString(key), key);
+        }
+        assertFalse(actual.containsKey("no.such.key"));
+    }
+
+    @Test
+    void utf8() throws Exception {
+        byte[] bytes = "key = \u00e9t\u00e9".getBytes(StandardCharsets.UTF_8);
+        ResourceBundle expected = new PropertyResourceBundle(new ByteArrayInputStream(bytes));
+        assertEquals(expected.getString("key"), LazyPropertiesBundle.of(bytes, new StringPool()).getString("key"));
+    }
+
+    @Test
+    void malformedEscapes() {
+        byte[] bytes = "key = \\u00zz".getBytes(StandardCharsets.ISO_8859_1);
+        assertThrows(IllegalArgumentException.class, () -> LazyPropertiesBundle.of(bytes, new StringPool()));
+    }
+
+    @Test
+    void largeFilesAreLoadedLazily(@TempDir Path directory) throws Exception {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; buf.length() < BundleControl.LAZY_LOADING_THRESHOLD; i++) {
+            buf.append("key").append(i).append(" = value ").append(i).append('\n');
+        }
+        Files.write(directory.resolve("Large.properties"), buf.toString().getBytes(StandardCharsets.ISO_8859_1));
+        Files.write(directory.resolve("Small.properties"), "key0 = small".getBytes(StandardCharsets.ISO_8859_1));
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {directory.toUri().toURL()}, null)) {
+            ResourceBundle large = ResourceBundle.getBundle("Large", Locale.ROOT, loader, BundleControl.NON_CACHING);
+            assertTrue(large instanceof LazyPropertiesBundle);
+            assertEquals("value 0", large.getString("key0"));
+            assertEquals("value 1000", large.getString("key1000"));
+            assertTrue(large.containsKey("key42"));
+
+            ResourceBundle small = ResourceBundle.getBundle("Small", Locale.ROOT, loader, BundleControl.NON_CACHING);
+            assertTrue(small instanceof PooledResourceBundle);
+            assertEquals("small", small.getString("key0"));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Tests finding the locales of bundles on the class path.
+ */
+class LocaleDiscoveryTest {
+    @Test
+    void propertiesAndClassBundles() throws Exception {
+        ClassLoader loader = LocaleDiscoveryTest.class.getClassLoader();
+
+        assertEquals(
+                new HashSet<>(Arrays.asList(Locale.ROOT, Locale.GERMAN, Locale.FRENCH, Locale.ITALIAN)),
+                new HashSet<>(LocaleDiscovery.discover("org.codehaus.plexus.i18n.i18n", loader)));
+        assertEquals(
+                new HashSet<>(Arrays.asList(
+                        Locale.ROOT, new Locale("en", "US"), new Locale("ko", "KR"), new Locale("xx"))),
+                new HashSet<>(LocaleDiscovery.discover("org.codehaus.plexus.i18n.BarBundle", loader)));
+    }
+
+    @Test
+    void localeSuffixes() {
+        assertEquals(Locale.FRENCH, LocaleDiscovery.toLocale("fr"));
+        assertEquals(new Locale("de", "CH"), LocaleDiscovery.toLocale("de_CH"));
+        assertEquals(new Locale("ja", "JP", "JP"), LocaleDiscovery.toLocale("ja_JP_JP"));
+        assertEquals(new Locale("", "US"), LocaleDiscovery.toLocale("_US"));
+        assertEquals(Locale.forLanguageTag("zh-Hant-TW"), LocaleDiscovery.toLocale("zh_Hant_TW"));
+        assertNull(LocaleDiscovery.toLocale(""));
+        assertNull(LocaleDiscovery.toLocale("a_b_c_d"));
+    }
+}
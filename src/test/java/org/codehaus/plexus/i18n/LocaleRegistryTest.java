@@ -0,0 +1,49 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests handing out canonical locales.
+ */
+class LocaleRegistryTest {
+    @Test
+    void localesAreInterned() {
+        assertSame(Locale.FRENCH, LocaleRegistry.intern(new Locale("fr")));
+        assertSame(Locale.CANADA_FRENCH, LocaleRegistry.of("fr", "CA"));
+
+        Locale locale = LocaleRegistry.intern(new Locale("pt", "BR"));
+        assertSame(locale, LocaleRegistry.of("pt", "BR"));
+        assertSame(locale, LocaleRegistry.intern(new Locale("PT", "br")));
+    }
+
+    @Test
+    void languageRanges() {
+        String header = "en-US, fr-ca;q=0.5, es";
+
+        assertSame(Locale.US, LocaleRegistry.forLanguageRange(header, 0, 5));
+        assertSame(Locale.CANADA_FRENCH, LocaleRegistry.forLanguageRange(header, 7, 12));
+        assertEquals(new Locale("es"), LocaleRegistry.forLanguageRange(header, 20, 22));
+        assertSame(LocaleRegistry.forLanguageRange(header, 20, 22), LocaleRegistry.forLanguageRange("es", 0, 2));
+    }
+}
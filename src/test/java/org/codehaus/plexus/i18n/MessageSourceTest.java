@@ -0,0 +1,214 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests serving messages from a {@link MessageSource}.
+ */
+class MessageSourceTest {
+    private static final String BUNDLE = "org.codehaus.plexus.i18n.i18n";
+
+    @Test
+    void sourceMessagesTakePrecedenceOverFiles() {
+        InMemoryMessageSource source = new InMemoryMessageSource();
+        source.put(BUNDLE, Locale.FRENCH, "key1", "[db] value1");
+        source.put(BUNDLE, Locale.ROOT, "key2", "[db] value2");
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setMessageSource(source);
+
+        assertEquals("[db] value1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertEquals("[db] value2", i18n.getString(BUNDLE, Locale.FRENCH, "key2"));
+        assertEquals("Merci Jean!", i18n.format(BUNDLE, Locale.FRENCH, "thanks.message", "Jean"));
+        assertEquals("[] value1", i18n.getString(BUNDLE, Locale.ROOT, "key1"));
+        assertEquals("missing", i18n.getString(BUNDLE, Locale.FRENCH, "missing"));
+    }
+
+    @Test
+    void sourceReplacesBundles() {
+        InMemoryMessageSource source = new InMemoryMessageSource();
+        source.put(BUNDLE, Locale.ROOT, "key2", "[db] value2");
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setMessageSource(source);
+        i18n.setMessageSourceReplacesBundles(true);
+
+        assertEquals("[db] value2", i18n.getString(BUNDLE, Locale.FRENCH, "key2"));
+        assertEquals("key1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertThrows(MissingResourceException.class, () -> i18n.getBundle("org.codehaus.plexus.i18n.Messages"));
+    }
+
+    @Test
+    void changedMessagesAreFetchedAgainAfterTheRefreshInterval() throws Exception {
+        InMemoryMessageSource source = new InMemoryMessageSource();
+        source.put(BUNDLE, Locale.FRENCH, "key1", "v1");
+        List<Set<Locale>> reloads = new CopyOnWriteArrayList<>();
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setLoadExecutor(Runnable::run);
+        i18n.setMessageSourceRefreshInterval(50);
+        i18n.setMessageSource(source);
+        i18n.addReloadListener((bundleName, locales) -> reloads.add(locales));
+
+        assertEquals("v1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertEquals("v1", i18n.format(BUNDLE, Locale.FRENCH, "key1", "x"));
+        long fetches = source.getFetchCount();
+        source.put(BUNDLE, Locale.FRENCH, "key1", "v2");
+        assertEquals("v1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertEquals(fetches, source.getFetchCount());
+
+        Thread.sleep(60);
+        // The first use after the interval fetches the messages again.
+        i18n.format(BUNDLE, Locale.FRENCH, "key1", "x");
+        assertEquals("v2", i18n.format(BUNDLE, Locale.FRENCH, "key1", "x"));
+        assertEquals("v2", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertEquals(1, reloads.size());
+        assertTrue(reloads.get(0).contains(Locale.FRENCH));
+    }
+
+    @Test
+    void messagesAreFetchedFromScratchUntilAFetchSucceeds() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        MessageSource source = (bundleName, locale, knownVersion) -> {
+            if (!locale.equals(Locale.FRENCH)) {
+                return null;
+            }
+            if (down.get()) {
+                throw new IOException("Store down");
+            }
+            return knownVersion == 0
+                    ? null
+                    : new MessageSource.Messages(Collections.singletonMap("key1", "[db] value1"), 0);
+        };
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setLoadExecutor(Runnable::run);
+        i18n.setMessageSourceRefreshInterval(20);
+        i18n.setMessageSource(source);
+
+        assertEquals("[fr] value1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        down.set(false);
+        Thread.sleep(30);
+        i18n.format(BUNDLE, Locale.FRENCH, "key1", "x");
+        assertEquals("[db] value1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+    }
+
+    @Test
+    void madeUpLocalesShareSourceBundles() {
+        InMemoryMessageSource store = new InMemoryMessageSource();
+        store.put(BUNDLE, Locale.FRENCH, "key1", "[db] value1");
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setMessageSource(store);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("[] value1", i18n.getString(BUNDLE, new Locale("x" + i), "key1"));
+        }
+        assertEquals("[db] value1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertEquals(2, i18n.getMessageIndexCount());
+        // The store lists its locales, so no made up one was fetched.
+        assertTrue(store.getFetchCount() < 10, "Fetches " + store.getFetchCount());
+
+        // A store that cannot tell which locales it has.
+        i18n.setMessageSource(store::fetch);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("[] value1", i18n.getString(BUNDLE, new Locale("x" + i), "key1"));
+        }
+        assertEquals("[db] value1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        assertEquals(2, i18n.getMessageIndexCount());
+    }
+
+    @Test
+    void newLocalesOfTheStoreAreSeen() throws Exception {
+        InMemoryMessageSource store = new InMemoryMessageSource();
+        store.put(BUNDLE, Locale.FRENCH, "key1", "[db] value1");
+        DefaultI18N i18n = new DefaultI18N();
+        i18n.setLoadExecutor(Runnable::run);
+        i18n.setMessageSourceRefreshInterval(20);
+        i18n.setMessageSource(store);
+
+        assertEquals("[de] value1", i18n.format(BUNDLE, Locale.GERMAN, "key1", "x"));
+        store.put(BUNDLE, Locale.GERMAN, "key1", "[db] Wert1");
+        Thread.sleep(30);
+        i18n.format(BUNDLE, Locale.GERMAN, "key1", "x");
+        assertEquals("[db] Wert1", i18n.getString(BUNDLE, Locale.GERMAN, "key1"));
+    }
+
+    @Test
+    void requestsDoNotWaitForTheStore() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InMemoryMessageSource store = new InMemoryMessageSource();
+        store.put(BUNDLE, Locale.FRENCH, "key1", "v1");
+        MessageSource source = new MessageSource() {
+            private volatile boolean fetched;
+
+            @Override
+            public Messages fetch(String bundleName, Locale locale, long knownVersion) throws IOException {
+                if (fetched && locale.equals(Locale.FRENCH)) {
+                    fetching.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    throw new IOException("Store down");
+                }
+                fetched |= locale.equals(Locale.FRENCH);
+                return store.fetch(bundleName, locale, knownVersion);
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DefaultI18N i18n = new DefaultI18N();
+            i18n.setLoadExecutor(executor);
+            i18n.setMessageSourceRefreshInterval(10);
+            i18n.setMessageSource(source);
+            assertEquals("v1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+
+            Thread.sleep(20);
+            assertEquals("v1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+            assertTrue(fetching.await(5, TimeUnit.SECONDS));
+            // The store is stuck, yet requests are answered.
+            for (int i = 0; i < 10; i++) {
+                assertEquals("v1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+            }
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            // The messages fetched last are kept when the store fails.
+            assertEquals("v1", i18n.getString(BUNDLE, Locale.FRENCH, "key1"));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests that compiled patterns format as <code>MessageFormat</code>
+ * does.
+ */
+class MessageTemplateTest {
+    private static final Object[][] ARGUMENTS = {
+        null,
+        {},
+        {"jason"},
+        {"jason", "van zyl"},
+        {null, new StringBuilder("builder")},
+        {1234567.891, -3},
+        {new Date(0L), Boolean.TRUE},
+    };
+
+    private static final Object[][] NUMBERS = {{0}, {1}, {2.5}, {1234567.891}};
+
+    private static final Object[][] NUMBERS_AND_DATES = {
+        null, {}, {-0.5, new Date(0L)}, {1234567.891, new Date(1700000000000L)}, {null, null}
+    };
+
+    private static final Locale[] LOCALES = {
+        Locale.ROOT, Locale.ENGLISH, Locale.US, Locale.GERMANY, Locale.FRANCE, new Locale("ar", "EG"), Locale.JAPAN
+    };
+
+    /**
+     * The pieces of the patterns generated by {@link #generatedPatterns()}.
+     */
+    private static final String[] PIECES = {
+        "a", " ", "'", "''", "{", "}", "{0}", "{1}", "{0,number}", "{0,number,integer}", "{1,date,short}",
+        "{1,time}", "{0,number,#}", "{1,choice,0#x|1#y}", ",", "0", "number", "date"
+    };
+
+    @Test
+    void literalPatterns() {
+        for (String pattern : new String[] {
+            "", "Hello", "It''s", "'{0}' is quoted", "'It''s {quoted}", "Unmatched }", "'Unterminated {0}"
+        }) {
+            MessageTemplate template = MessageTemplate.compile(pattern, Locale.FRENCH);
+            assertTrue(template.isLiteral(), pattern);
+            assertSameAsMessageFormat(pattern, Locale.FRENCH, ARGUMENTS);
+        }
+    }
+
+    @Test
+    void plainArguments() {
+        for (String pattern : new String[] {
+            "{0}", "Thanks {0}!", "{1} {0} {1}", "It''s {0}''s", "'{'{0}'}'", "{00}, {9999}", "{0}{1}}"
+        }) {
+            MessageTemplate template = MessageTemplate.compile(pattern, Locale.GERMAN);
+            assertFalse(template.isLiteral(), pattern);
+            assertFalse(template.isMessageFormat(), pattern);
+            assertSameAsMessageFormat(pattern, Locale.GERMAN, ARGUMENTS);
+        }
+    }
+
+    @Test
+    void formattedArguments() {
+        for (String pattern : new String[] {
+            "{0,number}",
+            "{0,number,integer} on {1,date,short}",
+            "{0,number,percent} at {1,time,full}",
+            "{0,number,currency}",
+            "{0, NUMBER , Integer }",
+            "{0,number,} {1,date,}",
+            "{1,date} {1,date,medium} {1,date,long} {1,date,full}",
+            "{1,time} {1,time,short} {1,time,medium} {1,time,long}",
+            "'{0,number}' {0,number}''s {3,number}"
+        }) {
+            for (Locale locale : LOCALES) {
+                MessageTemplate template = MessageTemplate.compile(pattern, locale);
+                assertFalse(template.isMessageFormat(), pattern);
+                assertSameAsMessageFormat(pattern, locale, NUMBERS_AND_DATES);
+            }
+        }
+    }
+
+    @Test
+    void otherPatternsUseMessageFormat() {
+        for (String pattern : new String[] {
+            "{0,number,#.##}",
+            "{0,choice,0#none|1#one|1<many}",
+            "{+0}",
+            "{10000}",
+            "{0,number,'{'}",
+            "{0,number,#,##0.0}",
+            "{0,date,yyyy}"
+        }) {
+            assertTrue(MessageTemplate.compile(pattern, Locale.ENGLISH).isMessageFormat(), pattern);
+            assertSameAsMessageFormat(pattern, Locale.ENGLISH, NUMBERS);
+        }
+    }
+
+    @Test
+    void invalidPatterns() {
+        for (String pattern : new String[] {"Unmatched {0", "{x}", "{ 0}", "{0 }"}) {
+            assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile(pattern, Locale.ENGLISH));
+        }
+    }
+
+    @Test
+    void generatedPatterns() {
+        Random random = new Random(42);
+        StringBuilder pattern = new StringBuilder();
+        for (int n = 0; n < 5000; n++) {
+            pattern.setLength(0);
+            for (int i = random.nextInt(8); i >= 0; i--) {
+                pattern.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            Locale locale = LOCALES[random.nextInt(LOCALES.length)];
+            Object[] args = {random.nextInt(2000) - 1000.25, new Date(random.nextLong() >>> 24)};
+
+            String expected;
+            try {
+                expected = new MessageFormat(pattern.toString(), locale).format(args);
+            } catch (IllegalArgumentException e) {
+                assertThrows(
+                        IllegalArgumentException.class,
+                        () -> MessageTemplate.compile(pattern.toString(), locale).format(args),
+                        pattern.toString());
+                continue;
+            }
+            assertEquals(expected, MessageTemplate.compile(pattern.toString(), locale).format(args), pattern.toString());
+        }
+    }
+
+    private static void assertSameAsMessageFormat(String pattern, Locale locale, Object[][] arguments) {
+        MessageTemplate template = MessageTemplate.compile(pattern, locale);
+        for (Object[] args : arguments) {
+            String expected = new MessageFormat(pattern, locale).format(args);
+            assertEquals(expected, template.format(args), pattern);
+
+            StringWriter writer = new StringWriter();
+            StringBuffer buffer = new StringBuffer();
+            try {
+                template.formatTo(args, writer);
+                template.formatTo(args, buffer);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+            assertEquals(expected, writer.toString(), pattern);
+            assertEquals(expected, buffer.toString(), pattern);
+        }
+    }
+}
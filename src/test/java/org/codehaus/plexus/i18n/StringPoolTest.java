@@ -0,0 +1,45 @@
+package org.codehaus.plexus.i18n;
+
+/*
+ * Copyright 2001-2007 Codehaus Foundation.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Tests sharing equal strings.
+ */
+class StringPoolTest {
+    @Test
+    void equalStringsAreShared() {
+        StringPool pool = new StringPool();
+        String first = new String("Hello");
+        String second = new String("Hello");
+
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(first));
+        assertSame(first, pool.intern(second));
+        assertSame(first, pool.intern(new String("Hello")));
+        assertEquals(1, pool.size());
+        assertEquals(2, pool.getDeduplicatedCount());
+        assertEquals(2 * (40 + 5 * StringPool.LATIN1_CHAR_BYTES), pool.getDeduplicatedBytes());
+
+        pool.intern(new String("\u00e9t\u00e9 \u20ac"));
+        pool.intern(new String("\u00e9t\u00e9 \u20ac"));
+        assertEquals(2 * (40 + 5 * StringPool.LATIN1_CHAR_BYTES) + 40 + 2 * 5, pool.getDeduplicatedBytes());
+    }
+}